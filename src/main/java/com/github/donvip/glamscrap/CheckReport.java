@@ -0,0 +1,99 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import com.github.donvip.glamscrap.GlamScrap.Range;
+
+/**
+ * Machine-readable report of the {@code check} command, written as JSON or CSV depending on the file extension.
+ */
+final class CheckReport {
+
+    record Result(String cote, int expected, int fetched, List<Range> missing) {
+        boolean isComplete() {
+            return fetched >= expected;
+        }
+    }
+
+    private CheckReport() {
+        // Hide public constructor
+    }
+
+    static void write(Path path, String institution, List<Result> results) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (path.getFileName().toString().toLowerCase(Locale.ENGLISH).endsWith(".csv")) {
+                writeCsv(out, results);
+            } else {
+                writeJson(out, institution, results);
+            }
+        }
+    }
+
+    private static void writeCsv(Writer out, List<Result> results) throws IOException {
+        out.write("fonds,expected,fetched,status,missing\n");
+        for (Result r : results) {
+            out.write(String.format("\"%s\",%d,%d,%s,\"%s\"%n", r.cote().replace("\"", "\"\""), r.expected(),
+                    r.fetched(), r.isComplete() ? "OK" : "KO", r.missing().stream().map(Range::toString).collect(joining(" "))));
+        }
+    }
+
+    private static void writeJson(Writer out, String institution, List<Result> results) throws IOException {
+        out.write("{\n  \"institution\": " + quote(institution) + ",\n  \"fonds\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write(String.format("    {\"cote\": %s, \"expected\": %d, \"fetched\": %d, \"status\": \"%s\", \"missing\": [%s]}",
+                    quote(r.cote()), r.expected(), r.fetched(), r.isComplete() ? "OK" : "KO",
+                    r.missing().stream().map(m -> "[" + m.min + ", " + m.max + "]").collect(joining(", "))));
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+            case '"', '\\':
+                sb.append('\\').append(c);
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
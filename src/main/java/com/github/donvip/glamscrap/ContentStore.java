@@ -0,0 +1,110 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.github.donvip.glamscrap.http.DownloadManager;
+
+/**
+ * Content-addressed store of downloaded files, by SHA-1: {@code <dir>/<2 first hex digits>/<sha1>}. Files of the
+ * download directories are hard links to the store, so that identical images of several notices or fonds are stored
+ * once. Where hard links are not supported, files are simply kept as copies.
+ */
+final class ContentStore {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Path dir;
+
+    ContentStore(Path dir) {
+        this.dir = dir;
+    }
+
+    private Path path(String sha1) {
+        return dir.resolve(sha1.substring(0, 2)).resolve(sha1);
+    }
+
+    /**
+     * Creates {@code file} as a link to the stored content with the given hash, if any.
+     *
+     * @return {@code true} if the file has been created
+     */
+    boolean link(String sha1, Path file) {
+        Path stored = path(sha1);
+        if (Files.exists(stored)) {
+            try {
+                Files.createLink(file, stored);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOGGER.debug("Unable to link {} to {}: {}", file, stored, e.toString());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a file to the store. If the same content is already stored, the file is replaced by a link to it.
+     */
+    void store(Path file, String sha1) {
+        Path stored = path(sha1);
+        try {
+            if (!Files.exists(stored)) {
+                Files.createDirectories(stored.getParent());
+                try {
+                    Files.createLink(stored, file);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently from another file
+                    LOGGER.trace(e);
+                }
+            }
+            if (!Files.isSameFile(stored, file)) {
+                LOGGER.debug("{} is a duplicate of {}", file, stored);
+                Path link = file.resolveSibling(file.getFileName() + ".link");
+                Files.deleteIfExists(link);
+                Files.createLink(link, stored);
+                Files.move(link, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to store {}: {}", file, e.toString());
+        }
+    }
+
+    /**
+     * Returns the SHA-1 of a file, as hexadecimal.
+     */
+    static String sha1(Path file) throws IOException {
+        MessageDigest digest = DownloadManager.sha1();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Append-only journal of the progress of a {@code scrap} run, allowing an interrupted run to resume where it stopped.
+ * <p>
+ * Records are tab-separated lines:
+ * <ul>
+ * <li>{@code P <fonds> <phase>}: phase completed for the fonds</li>
+ * <li>{@code I <fonds> <phase> <i>}: notice (or album) {@code i} processed during the phase</li>
+ * <li>{@code J <fonds> <i> <j>}: notice {@code j} of album {@code i} fetched</li>
+ * <li>{@code M <cote>}: missed notice</li>
+ * </ul>
+ * Progress records are only written and taken into account once the notices they relate to have been committed, see
+ * {@link #flush(String)}, and are dropped if the commit fails, see {@link #discard(String)}. The journal is periodically
+ * compacted into the minimal set of records describing the current state.
+ */
+final class CrawlJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Number of appended records after which the journal is compacted */
+    private static final int COMPACTION_THRESHOLD = 50_000;
+
+    enum Phase {
+        ALBUMS, BASE_SEARCH, EXTENDED_SEARCH, POST_SCRAP
+    }
+
+    private static final class FondsProgress {
+        final Set<Phase> completed = EnumSet.noneOf(Phase.class);
+        final Map<Phase, BitSet> processed = new EnumMap<>(Phase.class);
+        final Map<Integer, Integer> albums = new HashMap<>();
+    }
+
+    private final Path file;
+    // ReentrantLock rather than synchronized to avoid pinning virtual threads
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, FondsProgress> fonds = new HashMap<>();
+    private final Set<String> missedNotices = new TreeSet<>();
+    /** Records waiting for the commit of the notices they relate to, by fonds cote (empty for missed notices) */
+    private final Map<String, List<String>> pending = new HashMap<>();
+    private FileChannel channel;
+    private Writer writer;
+    private int appended;
+
+    CrawlJournal(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            load();
+            LOGGER.info("Resuming interrupted scrap from {}", file);
+        }
+        compact();
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    apply(line.split("\t"));
+                } catch (RuntimeException e) {
+                    // Last record may have been partially written during a crash
+                    LOGGER.warn("Ignoring invalid journal record: {}", line);
+                }
+            }
+        }
+    }
+
+    private void apply(String[] r) {
+        switch (r[0]) {
+        case "P" -> progress(r[1]).completed.add(Phase.valueOf(r[2]));
+        case "I" -> progress(r[1]).processed.computeIfAbsent(Phase.valueOf(r[2]), p -> new BitSet()).set(Integer.parseInt(r[3]));
+        case "J" -> progress(r[1]).albums.merge(Integer.parseInt(r[2]), Integer.parseInt(r[3]), Math::max);
+        case "M" -> missedNotices.add(r[1]);
+        default -> throw new IllegalArgumentException(r[0]);
+        }
+    }
+
+    private FondsProgress progress(String cote) {
+        return fonds.computeIfAbsent(cote, k -> new FondsProgress());
+    }
+
+    boolean isCompleted(String cote, Phase phase) {
+        lock.lock();
+        try {
+            FondsProgress p = fonds.get(cote);
+            return p != null && p.completed.contains(phase);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isProcessed(String cote, Phase phase, int i) {
+        lock.lock();
+        try {
+            FondsProgress p = fonds.get(cote);
+            BitSet processed = p != null ? p.processed.get(phase) : null;
+            return processed != null && processed.get(i);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of the last notice fetched in album {@code i}, or 0.
+     */
+    int getAlbumProgress(String cote, int i) {
+        lock.lock();
+        try {
+            FondsProgress p = fonds.get(cote);
+            return p != null ? p.albums.getOrDefault(i, 0) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Set<String> getMissedNotices() {
+        lock.lock();
+        try {
+            return new TreeSet<>(missedNotices);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void processed(String cote, Phase phase, int i) {
+        record(new String[] {"I", cote, phase.name(), Integer.toString(i)});
+    }
+
+    void albumProgress(String cote, int i, int j) {
+        record(new String[] {"J", cote, Integer.toString(i), Integer.toString(j)});
+    }
+
+    void missed(String cote) {
+        record(new String[] {"M", cote});
+    }
+
+    /**
+     * Records the completion of a phase. Notices fetched during the phase must have been committed.
+     */
+    void completed(String cote, Phase phase) {
+        lock.lock();
+        try {
+            record(new String[] {"P", cote, phase.name()});
+            flush(cote);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(String[] r) {
+        lock.lock();
+        try {
+            pending.computeIfAbsent("M".equals(r[0]) ? "" : r[1], k -> new ArrayList<>()).add(String.join("\t", r));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending records of all fonds.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            List<String> records = pending.values().stream().flatMap(List::stream).toList();
+            pending.clear();
+            write(records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending records of a fonds. To be called after each commit of its fetched notices.
+     */
+    void flush(String cote) {
+        lock.lock();
+        try {
+            List<String> records = new ArrayList<>(pending.getOrDefault(cote, List.of()));
+            records.addAll(pending.getOrDefault("", List.of()));
+            pending.remove(cote);
+            pending.remove("");
+            write(records);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops pending records of a fonds. To be called after a failed commit of its fetched notices, which are fetched
+     * again when the scrap is resumed.
+     */
+    void discard(String cote) {
+        lock.lock();
+        try {
+            List<String> records = pending.remove(cote);
+            if (records != null) {
+                LOGGER.warn("{}: discarding {} crawl journal records of uncommitted notices", cote, records.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<String> records) {
+        try {
+            if (!records.isEmpty()) {
+                for (String r : records) {
+                    apply(r.split("\t"));
+                    writer.write(r);
+                    writer.write('\n');
+                }
+                writer.flush();
+                appended += records.size();
+                if (appended >= COMPACTION_THRESHOLD) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to write crawl journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets everything, once a scrap run has completed.
+     */
+    void reset() throws IOException {
+        lock.lock();
+        try {
+            fonds.clear();
+            missedNotices.clear();
+            pending.clear();
+            compact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Atomically replaces the journal by the minimal set of records describing the current state.
+     */
+    private void compact() throws IOException {
+        closeWriter();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                Writer w = new OutputStreamWriter(Channels.newOutputStream(out), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, FondsProgress> e : fonds.entrySet()) {
+                String cote = e.getKey();
+                FondsProgress p = e.getValue();
+                for (Phase phase : p.completed) {
+                    w.write(String.join("\t", "P", cote, phase.name()) + '\n');
+                }
+                for (Map.Entry<Phase, BitSet> processed : p.processed.entrySet()) {
+                    // Processed indexes of completed phases are not needed anymore
+                    if (!p.completed.contains(processed.getKey())) {
+                        for (int i = processed.getValue().nextSetBit(0); i >= 0; i = processed.getValue().nextSetBit(i + 1)) {
+                            w.write(String.join("\t", "I", cote, processed.getKey().name(), Integer.toString(i)) + '\n');
+                        }
+                    }
+                }
+                for (Map.Entry<Integer, Integer> album : p.albums.entrySet()) {
+                    w.write(String.join("\t", "J", cote, album.getKey().toString(), album.getValue().toString()) + '\n');
+                }
+            }
+            for (String cote : missedNotices) {
+                w.write(String.join("\t", "M", cote) + '\n');
+            }
+            w.flush();
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+        appended = 0;
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            flush();
+            closeWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded LRU cache of dates extracted from texts, persisted between runs. Keys are normalized texts, values are dates
+ * in ISO format, whose precision is given by their number of fields ({@code yyyy}, {@code yyyy-MM} or
+ * {@code yyyy-MM-dd}). An empty value means that no date has been found in the text.
+ */
+final class DateCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private final Path file;
+    // ReentrantLock rather than synchronized to avoid pinning virtual threads
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, String> dates;
+    private boolean dirty;
+    private long hits;
+    private long misses;
+
+    DateCache(Path file, int capacity) {
+        this.file = file;
+        this.dates = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (file != null && Files.exists(file)) {
+            load();
+        }
+    }
+
+    static String normalize(String text) {
+        return WHITESPACES.matcher(text).replaceAll(" ").trim();
+    }
+
+    private void load() {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab >= 0) {
+                    dates.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+            LOGGER.debug("Loaded {} cached dates from {}", dates.size(), file);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to load date cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the date extracted from the normalized text, the empty string if none, or {@code null} if not cached.
+     */
+    String get(String key) {
+        lock.lock();
+        try {
+            String date = dates.get(key);
+            if (date != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return date;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(String key, String date) {
+        lock.lock();
+        try {
+            dates.put(key, date != null ? date : "");
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the cache to disk if it has changed, least recently used entries first.
+     */
+    void save() {
+        lock.lock();
+        try {
+            if (file != null && dirty) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (Map.Entry<String, String> e : dates.entrySet()) {
+                        writer.write(e.getKey());
+                        writer.write('\t');
+                        writer.write(e.getValue());
+                        writer.write('\n');
+                    }
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                dirty = false;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save date cache {}: {}", file, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getStatistics() {
+        lock.lock();
+        try {
+            return String.format("%d cached dates, %d hits, %d misses", dates.size(), hits, misses);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
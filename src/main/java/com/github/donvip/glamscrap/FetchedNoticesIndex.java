@@ -0,0 +1,129 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the notices of a fonds already stored in database. Notices are identified by their ordinal in
+ * the expected notice cotes of the fonds, album notices ({@code <cote>/<j>}) by the ordinal of their album and their
+ * number in it.
+ */
+final class FetchedNoticesIndex {
+
+    private final Map<String, Integer> ordinals;
+    private final BitSet notices = new BitSet();
+    private final Map<Integer, BitSet> albums = new HashMap<>();
+    /** Stored notices not matching any expected cote */
+    private final Set<String> others = new HashSet<>();
+    private int count;
+
+    /**
+     * @param expectedCotes cotes of the expected notices of the fonds
+     * @param fetchedCotes cotes of the notices of the fonds stored in database
+     */
+    FetchedNoticesIndex(List<String> expectedCotes, Collection<String> fetchedCotes) {
+        ordinals = HashMap.newHashMap(expectedCotes.size());
+        for (int i = 0; i < expectedCotes.size(); i++) {
+            ordinals.putIfAbsent(expectedCotes.get(i), i);
+        }
+        for (String cote : fetchedCotes) {
+            add(cote);
+        }
+    }
+
+    /**
+     * Records a stored notice.
+     *
+     * @return {@code true} if the notice was not already known
+     */
+    synchronized boolean add(String cote) {
+        boolean added;
+        Integer ordinal = ordinals.get(cote);
+        if (ordinal != null) {
+            added = !notices.get(ordinal);
+            notices.set(ordinal);
+        } else {
+            int[] albumNotice = albumNotice(cote);
+            if (albumNotice != null) {
+                BitSet album = albums.computeIfAbsent(albumNotice[0], k -> new BitSet());
+                added = !album.get(albumNotice[1]);
+                album.set(albumNotice[1]);
+            } else {
+                added = others.add(cote);
+            }
+        }
+        if (added) {
+            count++;
+        }
+        return added;
+    }
+
+    synchronized boolean contains(String cote) {
+        Integer ordinal = ordinals.get(cote);
+        if (ordinal != null) {
+            return notices.get(ordinal);
+        }
+        int[] albumNotice = albumNotice(cote);
+        if (albumNotice != null) {
+            BitSet album = albums.get(albumNotice[0]);
+            return album != null && album.get(albumNotice[1]);
+        }
+        return others.contains(cote);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Returns the ordinals of the notices stored either directly or through the first notice of their album.
+     */
+    synchronized BitSet fetchedNoticesOrAlbums() {
+        BitSet result = (BitSet) notices.clone();
+        albums.forEach((ordinal, album) -> {
+            if (album.get(1)) {
+                result.set(ordinal);
+            }
+        });
+        return result;
+    }
+
+    private int[] albumNotice(String cote) {
+        int idx = cote.lastIndexOf('/');
+        if (idx > 0) {
+            Integer ordinal = ordinals.get(cote.substring(0, idx));
+            if (ordinal != null) {
+                try {
+                    int j = Integer.parseInt(cote.substring(idx + 1));
+                    if (j >= 0) {
+                        return new int[] {ordinal, j};
+                    }
+                } catch (NumberFormatException e) {
+                    // Not an album notice
+                }
+            }
+        }
+        return null;
+    }
+}
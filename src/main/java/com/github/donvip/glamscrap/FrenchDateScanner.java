@@ -0,0 +1,180 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Hand-written recognizer of the common French date forms found in notices: {@code 1905}, {@code mars 1910},
+ * {@code 12 mars 1910}, {@code 1er mars 1910}, ranges ({@code 1914-1918}, {@code entre 1914 et 1918}) and
+ * approximations ({@code vers 1900}, {@code circa 1900}), anywhere in a text. It gives the same result as HeidelTime,
+ * the first date of the text, as long as the text is unambiguous: any other number, or any form it does not know for
+ * sure (decades, numeric dates, day without year...), makes it give up so that HeidelTime is used instead.
+ */
+final class FrenchDateScanner {
+
+    private FrenchDateScanner() {
+        // Hide public constructor
+    }
+
+    /**
+     * Scans a text for dates.
+     *
+     * @return the first date of the text in ISO format ({@code yyyy}, {@code yyyy-MM} or {@code yyyy-MM-dd}), the
+     *         empty string if the text contains no date, or {@code null} if the text is ambiguous
+     */
+    static String scan(CharSequence text) {
+        String first = null;
+        int day = 0;          // Day of month waiting for its month
+        int month = 0;        // Month waiting for its year
+        int monthDay = 0;     // Day of the waiting month
+        boolean decade = false;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                int start = i;
+                int value = 0;
+                while (i < length && isDigit(text.charAt(i))) {
+                    value = i - start < 5 ? value * 10 + text.charAt(i) - '0' : Integer.MAX_VALUE;
+                    i++;
+                }
+                int digits = i - start;
+                int end = wordEnd(text, i);
+                if (end > i) {
+                    // Only "1er" is allowed, not "1920s", "20e", "3ème"...
+                    if (value != 1 || digits != 1 || !"er".equalsIgnoreCase(text.subSequence(i, end).toString())
+                            || day > 0 || monthDay > 0) {
+                        return null;
+                    }
+                    day = 1;
+                    month = 0;
+                    i = end;
+                } else if (digits == 4 && value >= 1000 && value <= 2099) {
+                    if (day > 0 || decade) {
+                        return null;
+                    }
+                    if (first == null) {
+                        first = format(value, month, monthDay);
+                        if (first == null) {
+                            return null;
+                        }
+                    }
+                    month = 0;
+                    monthDay = 0;
+                } else if (digits <= 2 && value >= 1 && value <= 31 && day == 0 && monthDay == 0) {
+                    day = value;
+                    month = 0;
+                } else {
+                    return null;
+                }
+                decade = false;
+            } else if (Character.isLetter(c)) {
+                int end = wordEnd(text, i);
+                int m = month(text, i, end);
+                if (m > 0) {
+                    month = m;
+                    monthDay = day;
+                    day = 0;
+                    decade = false;
+                } else {
+                    if (day > 0 || monthDay > 0) {
+                        // Day of month without month or year
+                        return null;
+                    }
+                    month = 0;
+                    decade = isDecade(text, i, end);
+                }
+                i = end;
+            } else {
+                if (!Character.isWhitespace(c) && c != '.') {
+                    // Punctuation separates a month from the following year
+                    if (day > 0 || monthDay > 0) {
+                        return null;
+                    }
+                    month = 0;
+                    decade = false;
+                }
+                i++;
+            }
+        }
+        if (day > 0 || monthDay > 0) {
+            return null;
+        }
+        return first != null ? first : "";
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int wordEnd(CharSequence text, int i) {
+        while (i < text.length() && Character.isLetter(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDecade(CharSequence text, int start, int end) {
+        if (end - start != 6) {
+            return false;
+        }
+        String word = text.subSequence(start, end).toString().toLowerCase(Locale.FRENCH);
+        return "années".equals(word) || "annees".equals(word);
+    }
+
+    /**
+     * Returns the month (1-12) named by a word, full or abbreviated, 0 if none. "sept" is ignored, being also a
+     * number.
+     */
+    private static int month(CharSequence text, int start, int end) {
+        if (end - start < 3 || end - start > 9) {
+            return 0;
+        }
+        return switch (text.subSequence(start, end).toString().toLowerCase(Locale.FRENCH)) {
+        case "janvier", "janv" -> 1;
+        case "février", "fevrier", "févr", "fevr", "fév", "fev" -> 2;
+        case "mars" -> 3;
+        case "avril", "avr" -> 4;
+        case "mai" -> 5;
+        case "juin" -> 6;
+        case "juillet", "juil" -> 7;
+        case "août", "aout" -> 8;
+        case "septembre" -> 9;
+        case "octobre", "oct" -> 10;
+        case "novembre", "nov" -> 11;
+        case "décembre", "decembre", "déc", "dec" -> 12;
+        default -> 0;
+        };
+    }
+
+    private static String format(int year, int month, int day) {
+        if (month == 0) {
+            return Integer.toString(year);
+        } else if (day == 0) {
+            return String.format("%d-%02d", year, month);
+        }
+        try {
+            return LocalDate.of(year, month, day).toString();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -16,28 +16,44 @@
  */
 package com.github.donvip.glamscrap;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
+import java.net.URISyntaxException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
-import java.net.http.HttpResponse;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -46,16 +62,23 @@ import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.internal.SessionImpl;
 import org.hsqldb.util.DatabaseManagerSwing;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
+import com.github.donvip.glamscrap.CrawlJournal.Phase;
 import com.github.donvip.glamscrap.domain.Fonds;
 import com.github.donvip.glamscrap.domain.Notice;
+import com.github.donvip.glamscrap.http.DownloadManager;
+import com.github.donvip.glamscrap.http.HttpTransport;
+import com.github.donvip.glamscrap.http.RequestScheduler;
+import com.github.donvip.glamscrap.http.ResponseCache;
 import com.github.donvip.glamscrap.institutions.paris.ParisArchivesGlamScrap;
 import com.github.donvip.glamscrap.institutions.toulouse.ToulouseArchivesGlamScrap;
 import com.github.donvip.glamscrap.institutions.toulouse.ToulousePhotothequeGlamScrap;
 import com.github.donvip.glamscrap.uploadtools.Pattypan;
 import com.github.donvip.glamscrap.uploadtools.UploadTool;
+import com.github.donvip.glamscrap.uploadtools.UploadTool.Eligibility;
 import com.github.donvip.glamscrap.wikidata.Author;
 
 public abstract class GlamScrap implements AutoCloseable {
@@ -95,13 +118,73 @@ public abstract class GlamScrap implements AutoCloseable {
         }
     }
 
+    // -- Concurrency
+    /** Maximum number of fonds processed at the same time, each one in its own Hibernate session */
+    private static final int FONDS_CONCURRENCY = Integer.getInteger("glamscrap.fondsConcurrency", 1);
+    /** Maximum number of notices (or albums) scraped at the same time, all fonds included, each one on its own virtual thread */
+    private static final int SCRAP_CONCURRENCY = Integer.getInteger("glamscrap.scrapConcurrency", 1);
+    /** Number of album notices fetched ahead at once */
+    private static final int ALBUM_WINDOW = Math.max(1, Integer.getInteger("glamscrap.albumWindow", 1));
+    /** Find the extent of albums collections by galloping, assuming their notices are contiguous */
+    private static final boolean GALLOP_ALBUMS = Boolean.getBoolean("glamscrap.gallopAlbums");
+    /** Maximum number of files downloaded at the same time */
+    private static final int DOWNLOAD_CONCURRENCY = Integer.getInteger("glamscrap.downloadConcurrency", 4);
+    /** Download all images, instead of only those eligible for upload */
+    private static final boolean DOWNLOAD_ALL = Boolean.getBoolean("glamscrap.download.all");
+    /** Maximum number of images waiting to be downloaded while scrapping, before scrapping is paused */
+    private static final int HARVEST_QUEUE = Integer.getInteger("glamscrap.harvestQueue", 100);
+    /** Number of notices whose dates are extracted together, by one task of the dates stage */
+    private static final int DATES_CHUNK = Math.max(1, Integer.getInteger("glamscrap.dates.chunk", 500));
+    /** Extract dates of all notices, instead of only those without date */
+    private static final boolean DATES_ALL = Boolean.getBoolean("glamscrap.dates.all");
+    /** Maximum number of HTTP requests in flight to the same host */
+    private static final int MAX_REQUESTS_PER_HOST = Integer.getInteger("glamscrap.maxRequestsPerHost", 4);
+
+    // -- HTTP
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(Integer.getInteger("glamscrap.http.connectTimeout", 30));
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(Integer.getInteger("glamscrap.http.readTimeout", 60));
+    /** Initial, minimum and maximum number of requests per second and per host. Actual rate is adapted to servers load */
+    private static final double INITIAL_RATE = doubleProperty("glamscrap.http.initialRate", 2);
+    private static final double MIN_RATE = doubleProperty("glamscrap.http.minRate", 0.2);
+    private static final double MAX_RATE = doubleProperty("glamscrap.http.maxRate", 20);
+    /** HTTP cache mode: disabled, revalidate or cache-only (offline) */
+    private static final ResponseCache.Mode CACHE_MODE = ResponseCache.Mode.of(System.getProperty("glamscrap.http.cache", "revalidate"));
+
     // -- Hibernate
+    /** Number of notices committed together, also used as JDBC batch size */
+    private static final int BATCH_SIZE = Integer.getInteger("glamscrap.db.batchSize", 50);
+    /** Maximum delay, in milliseconds, before pending notices are committed */
+    private static final Duration BATCH_DELAY = Duration.ofMillis(Integer.getInteger("glamscrap.db.batchDelay", 5000));
+
     private final StandardServiceRegistry registry;
     private final SessionFactory sessionFactory;
     protected final Session session;
+    // Hibernate sessions are not thread-safe, all accesses go through the persister
+    private final WriteBehindPersister persister;
+    /** Persisters of the fonds being processed, each one with its own session, by fonds cote */
+    private final Map<String, WriteBehindPersister> fondsPersisters = new ConcurrentHashMap<>();
+    private final Semaphore scrapSlots = new Semaphore(SCRAP_CONCURRENCY);
+    private final Thread shutdownHook;
     protected final String city;
 
-    protected final Set<String> missedNotices = new TreeSet<>();
+    protected final Set<String> missedNotices = new ConcurrentSkipListSet<>();
+
+    private final Map<String, FetchedNoticesIndex> fetchedNotices = new ConcurrentHashMap<>();
+
+    /** Journal of the current scrap run, if any */
+    private volatile CrawlJournal journal;
+
+    /** Downloads of the notices of a fonds being harvested */
+    private record Harvest(Path dir, ExecutorService executor, Set<String> queued) {
+    }
+
+    /** Harvests in progress, by fonds cote */
+    private final Map<String, Harvest> harvests = new ConcurrentHashMap<>();
+    private final Semaphore harvestQueue = new Semaphore(HARVEST_QUEUE);
+
+    private final HttpTransport http;
+    private final DownloadManager downloads;
+    private final ContentStore store;
 
     protected GlamScrap(String city) {
         LOGGER.debug("Initializing Hibernate...");
@@ -109,9 +192,29 @@ public abstract class GlamScrap implements AutoCloseable {
         this.city = city;
         registry = new StandardServiceRegistryBuilder()
                     .configure() // configures settings from hibernate.cfg.xml
+                    .applySetting("hibernate.jdbc.batch_size", BATCH_SIZE)
+                    // One connection per fonds session, plus the main session
+                    .applySetting("hibernate.connection.pool_size", Math.max(1, FONDS_CONCURRENCY) + 1)
                     .build();
         sessionFactory = new MetadataSources(registry).buildMetadata().buildSessionFactory();
         session = sessionFactory.openSession();
+        persister = new WriteBehindPersister(session, BATCH_SIZE, BATCH_DELAY);
+        // Commit pending notices if we are interrupted
+        shutdownHook = new Thread(() -> {
+            fondsPersisters.values().forEach(WriteBehindPersister::flush);
+            persister.flush();
+        }, "flush-on-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        http = new HttpTransport(CONNECT_TIMEOUT, READ_TIMEOUT, MAX_REQUESTS_PER_HOST,
+                new RequestScheduler(INITIAL_RATE, MIN_RATE, MAX_RATE, 0.1, MAX_REQUESTS_PER_HOST),
+                new ResponseCache(Paths.get("output", city, "cache"), CACHE_MODE));
+        downloads = new DownloadManager(http, DOWNLOAD_CONCURRENCY);
+        store = new ContentStore(Paths.get("output", city, "store"));
+    }
+
+    private static double doubleProperty(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
     }
 
     protected abstract Album getAlbum(String cote);
@@ -123,14 +226,22 @@ public abstract class GlamScrap implements AutoCloseable {
     @Override
     public final void close() throws IOException {
         try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            Parser.logStatistics();
+            Parser.saveDateCache();
+            persister.close();
             session.close();
         } finally {
-            sessionFactory.close();
+            try {
+                sessionFactory.close();
+            } finally {
+                http.close();
+            }
         }
     }
 
     public static void usage() {
-        LOGGER.info("Usage: GlamScrap [paris_archives|toulouse_archives|toulouse_photos] scrap [<fonds>[,<fonds>]*] | check [<fonds>[,<fonds>]*] | download [<fonds>[,<fonds>]*] | pattypan [<fonds>] | gui");
+        LOGGER.info("Usage: GlamScrap [paris_archives|toulouse_archives|toulouse_photos] scrap [<fonds>[,<fonds>]*] | harvest [<fonds>[,<fonds>]*] | check [<fonds>[,<fonds>]*] | download [<fonds>[,<fonds>]*] | checksums [<fonds>[,<fonds>]*] | verify [<fonds>[,<fonds>]*] | dates [<fonds>[,<fonds>]*] | pattypan [<fonds>] | gui");
     }
 
     public static void main(String[] args) {
@@ -143,12 +254,24 @@ public abstract class GlamScrap implements AutoCloseable {
                 case "scrap":
                     app.doScrap(args);
                     break;
+                case "harvest":
+                    app.doHarvest(args);
+                    break;
                 case "check":
                     app.doCheck(args);
                     break;
                 case "download":
                     app.doDownload(args);
                     break;
+                case "checksums":
+                    app.doChecksums(args);
+                    break;
+                case "verify":
+                    app.doVerify(args);
+                    break;
+                case "dates":
+                    app.doDates(args);
+                    break;
                 case "pattypan":
                     app.doUploadTool(args, new Pattypan());
                     break;
@@ -165,16 +288,7 @@ public abstract class GlamScrap implements AutoCloseable {
     }
 
     private void doUploadTool(String[] args, UploadTool tool) throws IOException {
-        if (args.length <= 2) {
-            // Process all fonds
-            for (Fonds f : fetchAllFonds()) {
-                tool.writeUploadFile(f, this);
-            }
-        } else {
-            for (String cote : args[2].split(",")) {
-                tool.writeUploadFile(searchFonds(cote), this);
-            }
-        }
+        forEachFonds(selectFonds(args), f -> tool.writeUploadFile(f, this));
     }
 
     public abstract String getInstitution();
@@ -197,77 +311,356 @@ public abstract class GlamScrap implements AutoCloseable {
         }
     }
 
-    public final void doCheck(String[] args) throws IOException {
+    /**
+     * Returns the fonds given in command line arguments, or all fonds if none.
+     */
+    private List<Fonds> selectFonds(String[] args) throws IOException {
+        List<Fonds> fonds = new ArrayList<>();
         if (args.length <= 2) {
-            // Check all fonds
-            for (Fonds f : fetchAllFonds()) {
-                checkFonds(f);
-            }
+            fonds.addAll(fetchAllFonds());
         } else {
             for (String cote : args[2].split(",")) {
-                checkFonds(searchFonds(cote));
+                fonds.add(searchFonds(cote));
             }
         }
+        fonds.removeIf(Objects::isNull);
+        return fonds;
     }
 
-    public final void doDownload(String[] args) throws IOException {
-        if (args.length <= 2) {
-            // download all fonds
-            for (Fonds f : fetchAllFonds()) {
-                downloadFonds(f);
+    @FunctionalInterface
+    private interface FondsTask {
+        void run(Fonds f) throws IOException;
+    }
+
+    /**
+     * Runs {@code task} for each fonds in its own Hibernate session, up to {@link #FONDS_CONCURRENCY} fonds at the
+     * same time. Largest fonds are started first so that they don't end up running alone while other workers are
+     * idle. An error in a fonds does not stop the others, the first one is thrown once all fonds are processed.
+     */
+    private void forEachFonds(List<Fonds> fonds, FondsTask task) throws IOException {
+        IOException error = null;
+        if (FONDS_CONCURRENCY <= 1) {
+            for (Fonds f : fonds) {
+                try {
+                    inFondsSession(f, task);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("{}: {}", f.getCote(), e.toString());
+                    if (error == null) {
+                        error = e instanceof IOException ioe ? ioe : new IOException(e);
+                    }
+                }
             }
-        } else {
-            for (String cote : args[2].split(",")) {
-                downloadFonds(searchFonds(cote));
+            if (error != null) {
+                throw error;
             }
+            return;
+        }
+        List<Fonds> sorted = new ArrayList<>(fonds);
+        sorted.sort(Comparator.comparingInt(Fonds::getExpectedNotices).reversed());
+        Map<Fonds, Future<Void>> futures = new LinkedHashMap<>();
+        try (ExecutorService pool = Executors.newWorkStealingPool(FONDS_CONCURRENCY)) {
+            for (Fonds f : sorted) {
+                futures.put(f, pool.submit(() -> {
+                    inFondsSession(f, task);
+                    return null;
+                }));
+            }
+        }
+        for (Map.Entry<Fonds, Future<Void>> e : futures.entrySet()) {
+            try {
+                e.getValue().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(ex.getMessage());
+            } catch (ExecutionException ex) {
+                LOGGER.error("{}: {}", e.getKey().getCote(), ex.getCause().toString());
+                if (error == null) {
+                    error = ex.getCause() instanceof IOException ioe ? ioe : new IOException(ex.getCause());
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
         }
     }
 
-    private void checkFonds(Fonds f) {
-        if (f != null) {
-            int expected = f.getExpectedNotices();
-            int got = f.getFetchedNotices(session);
-            if (got >= expected) {
-                LOGGER.info("{}: : OK", f.getCote());
+    /**
+     * Runs {@code task} with the fonds reloaded in a new session, used by all database accesses related to the fonds
+     * until the task completes.
+     */
+    private void inFondsSession(Fonds f, FondsTask task) throws IOException {
+        try (Session s = sessionFactory.openSession();
+                WriteBehindPersister p = new WriteBehindPersister(s, BATCH_SIZE, BATCH_DELAY)) {
+            CrawlJournal j = journal;
+            if (j != null) {
+                p.setCommitListener(() -> j.flush(f.getCote()));
+            }
+            // Notices of the rolled back batch are not stored: rebuild the index from the database when next needed
+            p.setRollbackListener(() -> {
+                fetchedNotices.remove(f.getCote());
+                if (j != null) {
+                    j.discard(f.getCote());
+                }
+            });
+            fondsPersisters.put(f.getCote(), p);
+            try {
+                task.run(p.read(x -> x.get(Fonds.class, f.getCote())));
+            } finally {
+                fondsPersisters.remove(f.getCote());
+            }
+        }
+    }
+
+    public final void doCheck(String[] args) throws IOException {
+        List<CheckReport.Result> results = selectFonds(args).parallelStream().map(this::checkFonds).toList();
+        for (CheckReport.Result r : results) {
+            if (r.isComplete()) {
+                LOGGER.info("{}: : OK", r.cote());
             } else {
-                List<Range> missing = searchNotices(f, expected);
-                LOGGER.warn("{}: : KO (expected: {}; got: {}; missing: {})", f.getCote(), expected, got, missing);
+                LOGGER.warn("{}: : KO (expected: {}; got: {}; missing: {})", r.cote(), r.expected(), r.fetched(), r.missing());
             }
         }
+        String report = System.getProperty("glamscrap.check.report");
+        if (report != null) {
+            CheckReport.write(Paths.get(report), getInstitution(), results);
+            LOGGER.info("Check report written to {}", report);
+        }
+    }
+
+    public final void doDownload(String[] args) throws IOException {
+        forEachFonds(selectFonds(args), this::downloadFonds);
+    }
+
+    private CheckReport.Result checkFonds(Fonds f) {
+        int expected = f.getExpectedNotices();
+        int got = getFetchedNotices(f);
+        return new CheckReport.Result(f.getCote(), expected, got, got >= expected ? List.of() : searchNotices(f, expected));
     }
 
     private void downloadFonds(Fonds f) throws IOException {
         if (f != null) {
             Path dir = Files.createDirectories(getDownloadDir(f));
-            for (Notice n : f.getNotices()) {
-                downloadImage(n, dir);
+            // Authors are loaded before any download writes in the fonds session, eligibility is then decided
+            // without touching the session
+            List<Notice> notices = withSession(f, s -> {
+                List<Notice> list = List.copyOf(f.getNotices());
+                list.forEach(n -> Hibernate.initialize(n.getAuthors()));
+                return list;
+            });
+            List<Notice> deferred = new ArrayList<>();
+            int skipped = 0;
+            // Actual parallelism is bounded by the download manager
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (Notice n : notices) {
+                    // Download only images which will be uploaded
+                    switch (DOWNLOAD_ALL ? Eligibility.ELIGIBLE : UploadTool.getEligibility(n, this)) {
+                    case ELIGIBLE -> executor.execute(() -> downloadImageQuietly(f, n, dir));
+                    case INELIGIBLE -> skipped++;
+                    case UNRESOLVED -> deferred.add(n);
+                    }
+                }
+            }
+            if (skipped > 0) {
+                LOGGER.info("{}: skipped {} images not eligible for upload", f.getCote(), skipped);
+            }
+            if (!deferred.isEmpty()) {
+                // Lower priority: once eligible images are downloaded, try again to resolve authors, and download
+                // images that remain unresolved rather than losing them
+                LOGGER.info("{}: {} images with unresolved authors", f.getCote(), deferred.size());
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (Notice n : deferred) {
+                        if (UploadTool.getEligibility(n, this) != Eligibility.INELIGIBLE) {
+                            executor.execute(() -> downloadImageQuietly(f, n, dir));
+                        }
+                    }
+                }
             }
         }
     }
 
+    private void downloadImageQuietly(Fonds f, Notice n, Path dir) {
+        try {
+            downloadImage(f, n, dir);
+        } catch (IOException e) {
+            LOGGER.error("Unable to download {}: {}", n.getDownloadUrl(), e.getMessage());
+        }
+    }
+
     public Path getDownloadDir(Fonds f) {
         return Paths.get("output", city, "fonds", f.getCote());
     }
 
-    private void downloadImage(Notice n, Path dir) throws IOException {
+    private void downloadImage(Fonds f, Notice n, Path dir) throws IOException {
         if (n.getFilename() == null || n.getDownloadUrl() == null) {
             LOGGER.warn("No filename or download URL for {}", n);
         } else {
-            File file = dir.resolve(n.getFilename()).toFile();
-            if (!file.exists()) {
-                LOGGER.info("Downloading {}", n.getDownloadUrl());
-                try (ReadableByteChannel readableByteChannel = Channels.newChannel(n.getDownloadUrl().openStream());
-                        FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-                    fileOutputStream.getChannel().transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+            Path file = dir.resolve(n.getFilename());
+            if (!Files.exists(file)) {
+                if (n.getSha1() != null && store.link(n.getSha1(), file)) {
+                    LOGGER.info("Linked {} from content store", file);
+                    recordFile(f, n, file, n.getSha1());
+                } else {
+                    LOGGER.info("Downloading {}", n.getDownloadUrl());
+                    try {
+                        String sha1 = downloads.download(n.getDownloadUrl().toURI(), file).sha1();
+                        store.store(file, sha1);
+                        recordFile(f, n, file, sha1);
+                    } catch (URISyntaxException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the hash of the downloaded file of a notice, along with its size and modification time allowing to
+     * detect changes without hashing it again.
+     */
+    private void recordFile(Fonds f, Notice n, Path file, String sha1) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        persister(f).write(s -> {
+            n.setSha1(sha1);
+            n.setFileSize(attributes.size());
+            n.setFileModified(attributes.lastModifiedTime().toMillis());
+        });
+    }
+
+    public final void doChecksums(String[] args) throws IOException {
+        forEachFonds(selectFonds(args), this::checksumFonds);
+    }
+
+    /**
+     * Verifies the downloaded files of a fonds against their recorded hash. Files whose size and modification time
+     * did not change are considered unchanged and are not hashed. Files never hashed are hashed and recorded.
+     */
+    private void checksumFonds(Fonds f) throws IOException {
+        Path dir = getDownloadDir(f);
+        int unchanged = 0;
+        int hashed = 0;
+        List<String> missing = new ArrayList<>();
+        List<String> corrupted = new ArrayList<>();
+        for (Notice n : getNotices(f)) {
+            if (n.getFilename() != null) {
+                Path file = dir.resolve(n.getFilename());
+                if (!Files.exists(file)) {
+                    if (n.getSha1() != null) {
+                        missing.add(n.getFilename());
+                    }
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (n.getSha1() != null && Long.valueOf(attributes.size()).equals(n.getFileSize())
+                        && Long.valueOf(attributes.lastModifiedTime().toMillis()).equals(n.getFileModified())) {
+                    unchanged++;
+                } else {
+                    String sha1 = ContentStore.sha1(file);
+                    hashed++;
+                    if (n.getSha1() != null && !n.getSha1().equals(sha1)) {
+                        corrupted.add(n.getFilename());
+                    } else {
+                        store.store(file, sha1);
+                        recordFile(f, n, file, sha1);
+                    }
                 }
             }
         }
+        if (missing.isEmpty() && corrupted.isEmpty()) {
+            LOGGER.info("{}: OK ({} unchanged, {} hashed)", f.getCote(), unchanged, hashed);
+        } else {
+            LOGGER.warn("{}: KO ({} unchanged, {} hashed; missing: {}; corrupted: {})", f.getCote(), unchanged, hashed,
+                    missing, corrupted);
+        }
+    }
+
+    /**
+     * Scans the download directories for truncated or corrupted images, from their header and trailer only. Suspect
+     * files are moved to a quarantine directory, to be downloaded again by the next {@code download}.
+     */
+    public final void doVerify(String[] args) throws IOException {
+        Path root = Paths.get("output", city, "fonds");
+        List<Path> dirs = new ArrayList<>();
+        if (args.length <= 2) {
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> list = Files.list(root)) {
+                    list.filter(Files::isDirectory).forEach(dirs::add);
+                }
+            }
+        } else {
+            for (String cote : args[2].split(",")) {
+                dirs.add(root.resolve(cote));
+            }
+        }
+        for (Path dir : dirs) {
+            verifyDir(dir);
+        }
+    }
+
+    private void verifyDir(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            LOGGER.warn("No download directory {}", dir);
+            return;
+        }
+        String cote = dir.getFileName().toString();
+        // Sizes of the files whose hash is recorded, by filename
+        Map<String, Long> recorded = new HashMap<>();
+        for (Object[] r : withSession(s -> s.createQuery(
+                "select n.filename, n.fileSize from Notice n where n.fonds.cote = :cote and n.sha1 is not null",
+                Object[].class).setParameter("cote", cote).list())) {
+            recorded.put((String) r[0], (Long) r[1]);
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(Files::isRegularFile).filter(p -> {
+                String name = p.getFileName().toString();
+                return !name.endsWith(".part") && !name.endsWith(".link");
+            }).toList();
+        }
+        List<Path> suspects = files.parallelStream().filter(file -> {
+            try {
+                String reason = ImageVerifier.verify(file, recorded.get(file.getFileName().toString()));
+                if (reason != null) {
+                    LOGGER.warn("{}: {}", file, reason);
+                }
+                return reason != null;
+            } catch (IOException e) {
+                LOGGER.error("Unable to verify {}: {}", file, e.getMessage());
+                return false;
+            }
+        }).toList();
+        if (suspects.isEmpty()) {
+            LOGGER.info("{}: OK ({} files)", cote, files.size());
+            return;
+        }
+        // Suspect files are kept aside, never deleted: they may not be available anymore
+        Path quarantine = Files.createDirectories(Paths.get("output", city, "quarantine", cote));
+        for (Path file : suspects) {
+            Path target = quarantine.resolve(file.getFileName());
+            for (int i = 1; Files.exists(target); i++) {
+                target = quarantine.resolve(file.getFileName() + "." + i);
+            }
+            Files.move(file, target);
+        }
+        // Forget their recorded hash, so that they are downloaded again instead of linked from the content store
+        List<String> names = suspects.stream().map(p -> p.getFileName().toString()).filter(recorded::containsKey).toList();
+        if (!names.isEmpty()) {
+            persister.write(s -> s.createMutationQuery(
+                    "update Notice n set n.sha1 = null, n.fileSize = null, n.fileModified = null where n.fonds.cote = :cote and n.filename in :names")
+                    .setParameter("cote", cote).setParameterList("names", names).executeUpdate());
+            persister.flush();
+        }
+        LOGGER.warn("{}: KO ({} files, {} moved to {} to be downloaded again)", cote, files.size(), suspects.size(), quarantine);
     }
 
     private List<Range> searchNotices(Fonds f, int expected) {
         LinkedList<Range> missing = new LinkedList<>();
+        // Notices stored either directly or as first notice of an album
+        BitSet fetched = getFetchedNoticesIndex(f).fetchedNoticesOrAlbums();
         for (int i = 1; i <= expected; i++) {
-            if (searchNotice(f, i, -1, false) == null && searchNotice(f, i, 1, false) == null) {
+            int ordinal = getNoticeOrdinal(i);
+            if (ordinal < 0 || !fetched.get(ordinal)) {
                 if (!missing.isEmpty() && missing.getLast().max == i-1) {
                     missing.getLast().max = i;
                 } else {
@@ -279,78 +672,315 @@ public abstract class GlamScrap implements AutoCloseable {
     }
 
     public final void doScrap(String[] args) throws IOException {
-        missedNotices.clear();
-        if (args.length <= 2) {
-            // Scrap all fonds
-            for (Fonds f : fetchAllFonds()) {
-                scrapFonds(f);
-            }
-        } else {
-            for (String cote : args[2].split(",")) {
-                scrapFonds(cote);
+        scrap(args, this::scrapFonds);
+    }
+
+    /**
+     * Scraps fonds and downloads their images at the same time: each new notice is queued for download as soon as it
+     * is persisted.
+     */
+    public final void doHarvest(String[] args) throws IOException {
+        scrap(args, this::harvestFonds);
+    }
+
+    private void scrap(String[] args, FondsTask task) throws IOException {
+        try (CrawlJournal j = new CrawlJournal(Paths.get("output", city, "crawl.journal"))) {
+            journal = j;
+            missedNotices.clear();
+            missedNotices.addAll(j.getMissedNotices());
+            forEachFonds(selectFonds(args), task);
+            if (!missedNotices.isEmpty()) {
+                LOGGER.error("Missed {} notices: {}", missedNotices.size(), missedNotices);
             }
-        }
-        if (!missedNotices.isEmpty()) {
-            LOGGER.error("Missed {} notices: {}", missedNotices.size(), missedNotices);
+            // Completed run, next one will start from scratch
+            j.reset();
+        } finally {
+            journal = null;
         }
     }
 
     protected abstract List<Fonds> fetchAllFonds() throws IOException;
 
-    private void scrapFonds(String cote) throws IOException {
-        scrapFonds(searchFonds(cote));
-    }
-
     private void scrapFonds(Fonds f) throws IOException {
         if (f != null) {
             // Do we have less notices in database than expected?
             int expected = f.getExpectedNotices();
-            if (f.getFetchedNotices(session) < expected) {
+            if (getFetchedNotices(f) < expected) {
                 // Special handling of albums collections
                 Album album = getAlbum(f.getCote());
                 if (album != null) {
-                    scrapAlbums(f, album);
+                    runPhase(f, Phase.ALBUMS, () -> scrapAlbums(f, album));
                 } else {
                     // base search
-                    scrapFondsNotices(f, expected, 1, expected);
+                    runPhase(f, Phase.BASE_SEARCH, () -> scrapFondsNotices(f, Phase.BASE_SEARCH, expected, 1, expected));
                     // extend search by number of missing notices
-                    scrapFondsNotices(f, expected, expected + 1, expected + missedNotices.size());
+                    runPhase(f, Phase.EXTENDED_SEARCH, () -> scrapFondsNotices(f, Phase.EXTENDED_SEARCH, expected, expected + 1, expected + missedNotices.size()));
                     // post scrapping
-                    postScrapFonds(f);
+                    runPhase(f, Phase.POST_SCRAP, () -> postScrapFonds(f));
+                }
+                // Dates are extracted once all notices are fetched, not to slow down scrapping
+                extractDates(f, false);
+            }
+        }
+    }
+
+    public final void doDates(String[] args) throws IOException {
+        forEachFonds(selectFonds(args), f -> extractDates(f, DATES_ALL));
+    }
+
+    /**
+     * Extracts the dates of notices already in database, by chunks processed in parallel. Texts are copied so that
+     * extraction does not touch managed entities, dates are then set in a write of the fonds persister. Notices of a
+     * failed chunk are processed again one by one, to report those which fail.
+     *
+     * @param all extract dates of all notices, instead of only those without date, ignoring cached dates
+     */
+    private void extractDates(Fonds f, boolean all) {
+        List<Notice> candidates = persister(f).read(s -> f.getNotices().stream().filter(n -> all || n.getYear() == null).toList());
+        List<Notice> notices = candidates;
+        if (hasDateText()) {
+            // Scrapped before the date field was stored: their description would give a wrong date
+            notices = candidates.stream().filter(n -> n.getDateText() != null).toList();
+            if (notices.size() < candidates.size()) {
+                LOGGER.warn("{}: skipped {} notices without date text, scrap them again to extract their date",
+                        f.getCote(), candidates.size() - notices.size());
+            }
+        }
+        record Chunk(List<Notice> notices, Future<Integer> dated) { }
+        List<Chunk> chunks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < notices.size(); i += DATES_CHUNK) {
+                List<Notice> chunk = notices.subList(i, Math.min(notices.size(), i + DATES_CHUNK));
+                chunks.add(new Chunk(chunk, executor.submit(() -> extractDates(f, chunk, all))));
+            }
+        }
+        int dated = 0;
+        int failed = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.dated().state() == Future.State.SUCCESS) {
+                dated += chunk.dated().resultNow();
+                continue;
+            }
+            for (Notice n : chunk.notices()) {
+                try {
+                    dated += extractDates(f, List.of(n), all);
+                } catch (RuntimeException e) {
+                    failed++;
+                    LOGGER.error("{}: unable to extract date of {}: {}", f.getCote(), n.getCote(), e.toString());
                 }
             }
         }
+        persister(f).flush();
+        LOGGER.info("{}: dated {} of {} notices, {} failed", f.getCote(), dated, notices.size(), failed);
+    }
+
+    private int extractDates(Fonds f, List<Notice> notices, boolean refresh) {
+        List<Notice> copies = notices.stream().map(n -> {
+            Notice c = new Notice();
+            c.setTitle(n.getTitle());
+            c.setDescription(n.getDescription());
+            c.setDateText(n.getDateText());
+            return c;
+        }).toList();
+        int dated = Parser.extractDates(copies, refresh);
+        persister(f).write(s -> {
+            for (int k = 0; k < notices.size(); k++) {
+                Notice n = notices.get(k);
+                n.setDate(copies.get(k).getDate());
+                n.setYearMonth(copies.get(k).getYearMonth());
+                n.setYear(copies.get(k).getYear());
+            }
+        });
+        return dated;
+    }
+
+    private void harvestFonds(Fonds f) throws IOException {
+        Path dir = Files.createDirectories(getDownloadDir(f));
+        // Actual parallelism is bounded by the download manager, closing the executor waits for pending downloads
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Harvest h = new Harvest(dir, executor, ConcurrentHashMap.newKeySet());
+            harvests.put(f.getCote(), h);
+            try {
+                scrapFonds(f);
+                // Notices scrapped during previous runs
+                for (Notice n : getNotices(f)) {
+                    queueDownload(h, f, n);
+                }
+            } finally {
+                harvests.remove(f.getCote());
+            }
+        }
+    }
+
+    /**
+     * Queues the download of a notice image, waiting for room in the queue if it is full.
+     */
+    private void queueDownload(Harvest h, Fonds f, Notice n) {
+        if (n.getDownloadUrl() != null && h.queued().add(n.getCote())) {
+            harvestQueue.acquireUninterruptibly();
+            h.executor().execute(() -> {
+                try {
+                    downloadImage(f, n, h.dir());
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Unable to download {}: {}", n.getDownloadUrl(), e.getMessage());
+                } finally {
+                    harvestQueue.release();
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface ScrapPhase {
+        void run() throws IOException;
+    }
+
+    private void runPhase(Fonds f, Phase phase, ScrapPhase action) throws IOException {
+        if (journal.isCompleted(f.getCote(), phase)) {
+            LOGGER.info("{}: {} already completed", f.getCote(), phase);
+        } else {
+            action.run();
+            persister(f).flush();
+            journal.completed(f.getCote(), phase);
+        }
     }
 
     private void scrapAlbums(Fonds f, Album album) {
-        for (int i = 1; i <= album.numberOfAlbums; i++) {
+        forEachConcurrently(f, Phase.ALBUMS, 1, album.numberOfAlbums, i -> true, i -> {
             if (searchNotice(f, i) != null || album.allowEmptyAlbumNotices) {
-                scrapAlbum(f, i, 1);
+                if (GALLOP_ALBUMS) {
+                    gallopAlbum(f, i, 1);
+                } else {
+                    scrapAlbum(f, i, 1);
+                }
             }
-        }
+        });
     }
 
-    private void scrapFondsNotices(Fonds f, int expected, int start, int end) {
+    private void scrapFondsNotices(Fonds f, Phase phase, int expected, int start, int end) {
         Range allowedGap = getAllowedGap(f.getCote());
-        for (int i = start; i <= end && f.getFetchedNotices(session) < expected; i++) {
+        forEachConcurrently(f, phase, start, end, i -> getFetchedNotices(f) < expected, i -> {
             if ((allowedGap == null || !allowedGap.contains(i)) && (searchNotice(f, i) == null && searchNotice(f, i, 1, true) != null)) {
                 // search like albums, some fonds are inconsistent
                 scrapAlbum(f, i, 2);
             }
+        });
+    }
+
+    /**
+     * Runs {@code task} for each index from {@code start} to {@code end} not already processed according to the
+     * journal, with at most {@link #SCRAP_CONCURRENCY} tasks of all fonds running at the same time on virtual threads.
+     * {@code condition} is evaluated before each index is submitted, once a slot is available, so that the loop stops
+     * as soon as it is no longer satisfied.
+     */
+    private void forEachConcurrently(Fonds f, Phase phase, int start, int end, IntPredicate condition, IntConsumer task) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = start; i <= end; i++) {
+                if (journal.isProcessed(f.getCote(), phase, i)) {
+                    continue;
+                }
+                scrapSlots.acquireUninterruptibly();
+                if (!condition.test(i)) {
+                    scrapSlots.release();
+                    break;
+                }
+                final int index = i;
+                executor.execute(() -> {
+                    try {
+                        task.accept(index);
+                        journal.processed(f.getCote(), phase, index);
+                    } catch (RuntimeException e) {
+                        LOGGER.catching(e);
+                    } finally {
+                        scrapSlots.release();
+                    }
+                });
+            }
         }
     }
 
     private void scrapAlbum(Fonds f, int i, int start) {
-        for (int j = start; searchNotice(f, i, j, true) != null; j++) {
-            LOGGER.trace(j);
+        // Resume after the last notice fetched before an interruption
+        int j = Math.max(start, journal.getAlbumProgress(f.getCote(), i) + 1);
+        boolean gap = false;
+        while (!gap) {
+            // Fetch a window of notices at once, and stop at the first missing one
+            boolean[] found = probeAlbum(f, i, j, j + ALBUM_WINDOW - 1);
+            for (int k = 0; k < found.length && !gap; k++, j++) {
+                if (found[k]) {
+                    LOGGER.trace(j);
+                    journal.albumProgress(f.getCote(), i, j);
+                } else {
+                    gap = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scraps an album whose notices are known to be contiguous. Its extent is first found by galloping (exponential
+     * then binary search) from {@code start}, then remaining notices are fetched by windows.
+     */
+    private void gallopAlbum(Fonds f, int i, int start) {
+        int first = Math.max(start, journal.getAlbumProgress(f.getCote(), i) + 1);
+        if (searchNotice(f, i, first, true) == null) {
+            return;
+        }
+        // Exponential search: last found notice in lo, first missing one in hi
+        int lo = first;
+        int hi = first + 1;
+        while (searchNotice(f, i, hi, true) != null) {
+            lo = hi;
+            hi = first + 2 * (hi - first);
+        }
+        // Binary search of the last notice
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (searchNotice(f, i, mid, true) != null) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        LOGGER.debug("Album {} of {} ends with notice {}", i, f.getCote(), lo);
+        for (int j = first; j <= lo; j += ALBUM_WINDOW) {
+            int end = Math.min(lo, j + ALBUM_WINDOW - 1);
+            boolean[] found = probeAlbum(f, i, j, end);
+            for (int k = 0; k < found.length; k++) {
+                if (!found[k]) {
+                    LOGGER.warn("Missing notice {} in album {} of {}", j + k, i, f.getCote());
+                }
+            }
+            journal.albumProgress(f.getCote(), i, end);
         }
     }
 
+    /**
+     * Fetches notices {@code from} to {@code to} of album {@code i} concurrently.
+     *
+     * @return for each notice, whether it has been found
+     */
+    private boolean[] probeAlbum(Fonds f, int i, int from, int to) {
+        boolean[] found = new boolean[to - from + 1];
+        if (found.length == 1) {
+            found[0] = searchNotice(f, i, from, true) != null;
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int j = from; j <= to; j++) {
+                    final int k = j - from;
+                    final int index = j;
+                    executor.execute(() -> found[k] = searchNotice(f, i, index, true) != null);
+                }
+            }
+        }
+        return found;
+    }
+
     protected abstract void postScrapFonds(Fonds f) throws IOException;
 
     protected final Fonds searchFonds(String cote) throws IOException {
         // Check to be sure, we don't have it in database
-        Fonds f = session.get(Fonds.class, cote);
+        Fonds f = withSession(s -> s.get(Fonds.class, cote));
         if (f == null) {
             LOGGER.info("New fonds! {}", cote);
             f = createNewFonds(cote);
@@ -364,9 +994,108 @@ public abstract class GlamScrap implements AutoCloseable {
     }
 
     protected final void persist(Object o) {
-        session.beginTransaction();
-        session.persist(o);
-        session.getTransaction().commit();
+        persister.writeNow(s -> s.persist(o));
+    }
+
+    /**
+     * Persists an entity related to the given fonds, and commits it immediately.
+     */
+    protected final void persist(Fonds f, Object o) {
+        persister(f).writeNow(s -> s.persist(o));
+    }
+
+    /**
+     * Returns the notice of the given fonds stored in database, if any. Relies on the in-memory index of the fonds,
+     * the notice itself being lazily loaded.
+     */
+    protected final Notice findNotice(Fonds f, String cote) {
+        return getFetchedNoticesIndex(f).contains(cote) ? withSession(f, s -> s.getReference(Notice.class, cote)) : null;
+    }
+
+    /**
+     * Records a notice which could not be fetched.
+     */
+    protected final void addMissedNotice(String cote) {
+        missedNotices.add(cote);
+        CrawlJournal j = journal;
+        if (j != null) {
+            j.missed(cote);
+        }
+    }
+
+    /**
+     * Persists a new notice of the given fonds. The notice is committed later, with the next batch.
+     */
+    protected final void persistNotice(Fonds f, Notice n) {
+        persister(f).write(s -> {
+            f.getNotices().add(n);
+            n.setFonds(f);
+            s.persist(n);
+        });
+        getFetchedNoticesIndex(f).add(n.getCote());
+        Harvest h = harvests.get(f.getCote());
+        if (h != null) {
+            queueDownload(h, f, n);
+        }
+    }
+
+    protected final int getFetchedNotices(Fonds f) {
+        return getFetchedNoticesIndex(f).count();
+    }
+
+    private FetchedNoticesIndex getFetchedNoticesIndex(Fonds f) {
+        return fetchedNotices.computeIfAbsent(f.getCote(), cote -> {
+            List<String> expectedCotes = f.getExpectedNoticeCotes() != null
+                    ? f.getExpectedNoticeCotes().stream().map(this::getNoticeCote).toList()
+                    : List.of();
+            return new FetchedNoticesIndex(expectedCotes, withSession(f, s -> s
+                    .createQuery("select n.cote from Notice n where n.fonds.cote = :cote", String.class)
+                    .setParameter("cote", cote).list()));
+        });
+    }
+
+    /**
+     * Returns the position in {@link Fonds#getExpectedNoticeCotes()} of the i-th notice of a fonds.
+     */
+    protected int getNoticeOrdinal(int i) {
+        return i - 1;
+    }
+
+    /**
+     * Returns {@code true} if notices get their date from a dedicated field, stored in {@link Notice#getDateText()},
+     * rather than from their description or title.
+     */
+    protected boolean hasDateText() {
+        return false;
+    }
+
+    /**
+     * Returns the cote of a notice from its entry in {@link Fonds#getExpectedNoticeCotes()}.
+     */
+    protected String getNoticeCote(String expectedNoticeCote) {
+        return expectedNoticeCote;
+    }
+
+    protected final <T> T withSession(Function<Session, T> action) {
+        return persister.read(action);
+    }
+
+    /**
+     * Runs a database access related to the given fonds, in the session of the fonds if it is being processed.
+     */
+    protected final <T> T withSession(Fonds f, Function<Session, T> action) {
+        return persister(f).read(action);
+    }
+
+    /**
+     * Returns a snapshot of the notices of a fonds, which can be iterated while notices are written.
+     */
+    protected final List<Notice> getNotices(Fonds f) {
+        return withSession(f, s -> List.copyOf(f.getNotices()));
+    }
+
+    private WriteBehindPersister persister(Fonds f) {
+        return fondsPersisters.getOrDefault(f.getCote(), persister);
     }
 
     protected final Notice searchNotice(Fonds f, int i) {
@@ -379,7 +1108,17 @@ public abstract class GlamScrap implements AutoCloseable {
 
     protected final Document fetch(String doc) throws IOException {
         LOGGER.info("Fetching {}{}", getBaseUrl(), doc);
-        return Jsoup.connect(getBaseUrl() + doc).get();
+        try {
+            HttpTransport.Response response = http.get(URI.create(getBaseUrl() + doc));
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), response.uri().toString());
+            }
+            Charset charset = response.charset();
+            return Jsoup.parse(response.bodyStream(), charset != null ? charset.name() : null, response.uri().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
     }
 
     protected final String fetchPost(String doc, String body, String...headers) throws IOException, InterruptedException {
@@ -390,9 +1129,7 @@ public abstract class GlamScrap implements AutoCloseable {
     }
 
     protected final String fetchPost(HttpRequest request) throws IOException, InterruptedException {
-        try (HttpClient client = HttpClient.newHttpClient()) {
-            return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
-        }
+        return http.send(request).bodyAsString();
     }
 
     public abstract String getOtherFields(Notice n);
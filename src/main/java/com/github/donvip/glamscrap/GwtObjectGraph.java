@@ -0,0 +1,373 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+/**
+ * Typed views of the object graph serialized in a GWT-RPC response, decoded lazily.
+ * <p>
+ * GWT-RPC is not self-describing: the fields of each class are given by a {@linkplain #GwtObjectGraph(GwtResponse, Map)
+ * schema}, listing their types in serialization order (fields of the class in alphabetical order, then those of its
+ * superclass). Strings, boxed primitives, dates, arrays and the usual collections are known without schema.
+ * <p>
+ * Nothing is decoded until accessed: reading a field skips over the previous ones, which only walks the values to
+ * find its position and to number the objects met, as back-references designate objects by their order of appearance.
+ * Views are only created for accessed objects. Not thread-safe.
+ */
+public final class GwtObjectGraph {
+
+    public enum FieldType {
+        BOOLEAN, INT, DOUBLE, LONG, STRING, OBJECT
+    }
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789$_";
+
+    private enum Kind {
+        SCHEMA, STRING, INT, DOUBLE, LONG, DATE, COLLECTION, LINKED_HASH_MAP, MAP, INT_ARRAY, DOUBLE_ARRAY, LONG_ARRAY
+    }
+
+    private final List<String> strings;
+    private final List<Object> values;
+    private final Map<String, List<FieldType>> schemas;
+    /** Object number (1-based) of the type token at each offset, or 0 if not met yet */
+    private final int[] objectIds;
+    /** Offsets of the type tokens of the objects met, in order of appearance */
+    private final List<Integer> objectOffsets = new ArrayList<>();
+    /** Views of the objects, by number, created on access */
+    private final List<GwtObject> views = new ArrayList<>();
+
+    /**
+     * @param schemas field types of the classes of the graph, by class name (type signature without its CRC)
+     */
+    public GwtObjectGraph(GwtResponse response, Map<String, List<FieldType>> schemas) {
+        this.strings = response.strings();
+        this.values = response.values();
+        this.schemas = schemas;
+        this.objectIds = new int[values.size()];
+    }
+
+    /**
+     * Returns the object returned by the remote method, that is the first value of the response: a {@link GwtObject},
+     * a {@link String}, a boxed primitive or {@code null}.
+     */
+    public Object root() {
+        return readObject(0);
+    }
+
+    /**
+     * View of a serialized object. Fields are read by index, in the order of the schema of the class. Collections,
+     * arrays and maps are read by element index.
+     */
+    public final class GwtObject {
+
+        private final String signature;
+        private final Kind kind;
+        private final List<FieldType> fields;
+        /** Offsets of the slots of the object known so far: fields, or size and elements */
+        private int[] slots;
+        private int walked;
+
+        private GwtObject(int offset, String signature, Kind kind) {
+            this.signature = signature;
+            this.kind = kind;
+            this.fields = kind == Kind.SCHEMA ? schemas.get(className(signature)) : null;
+            // Access order flag of linked hash maps, before their size
+            this.slots = new int[] {kind == Kind.LINKED_HASH_MAP ? offset + 2 : offset + 1};
+        }
+
+        /**
+         * Returns the class name of the object.
+         */
+        public String getType() {
+            return className(signature);
+        }
+
+        public int getInt(int field) {
+            return ((Number) values.get(slot(field, FieldType.INT))).intValue();
+        }
+
+        public boolean getBoolean(int field) {
+            return ((Number) values.get(slot(field, FieldType.BOOLEAN))).intValue() != 0;
+        }
+
+        public double getDouble(int field) {
+            return ((Number) values.get(slot(field, FieldType.DOUBLE))).doubleValue();
+        }
+
+        public long getLong(int field) {
+            return decodeLong(values.get(slot(field, FieldType.LONG)));
+        }
+
+        public String getString(int field) {
+            return string(values.get(slot(field, FieldType.STRING)));
+        }
+
+        /**
+         * Returns an object field: a {@link GwtObject}, a {@link String}, a boxed primitive or {@code null}.
+         */
+        public Object getObject(int field) {
+            return readObject(slot(field, FieldType.OBJECT));
+        }
+
+        /**
+         * Returns the number of elements of a collection, array or map.
+         */
+        public int size() {
+            if (kind == Kind.SCHEMA) {
+                throw new IllegalStateException(getType() + " is not a collection");
+            }
+            return ((Number) values.get(slots[0])).intValue();
+        }
+
+        /**
+         * Returns an element of a collection or array of objects, or the key of a map entry.
+         */
+        public Object get(int i) {
+            return readObject(elementSlot(kind == Kind.COLLECTION ? i : 2 * i, Kind.COLLECTION));
+        }
+
+        /**
+         * Returns the value of a map entry.
+         */
+        public Object getValue(int i) {
+            return readObject(elementSlot(2 * i + 1, Kind.MAP));
+        }
+
+        public int getIntElement(int i) {
+            return ((Number) values.get(elementSlot(i, Kind.INT_ARRAY))).intValue();
+        }
+
+        public double getDoubleElement(int i) {
+            return ((Number) values.get(elementSlot(i, Kind.DOUBLE_ARRAY))).doubleValue();
+        }
+
+        public long getLongElement(int i) {
+            return decodeLong(values.get(elementSlot(i, Kind.LONG_ARRAY)));
+        }
+
+        private int elementSlot(int i, Kind expected) {
+            Kind k = kind == Kind.LINKED_HASH_MAP ? Kind.MAP : kind;
+            if (k != expected && !(expected == Kind.COLLECTION && k == Kind.MAP)) {
+                throw new IllegalStateException(getType() + " is not a " + expected);
+            }
+            int count = k == Kind.MAP ? 2 * size() : size();
+            if (i < 0 || i >= count) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            // Slot 0 is the size
+            return walkTo(i + 1);
+        }
+
+        private int slot(int field, FieldType type) {
+            if (fields == null) {
+                throw new IllegalStateException("No schema for " + getType());
+            }
+            if (fields.get(field) != type) {
+                throw new IllegalArgumentException(getType() + " field " + field + " is a " + fields.get(field) + ", not a " + type);
+            }
+            return walkTo(field);
+        }
+
+        /**
+         * Returns the offset of a slot, skipping over the previous ones if not done yet.
+         */
+        private int walkTo(int slot) {
+            if (slot >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(slot + 1, 2 * slots.length));
+            }
+            for (; walked < slot; walked++) {
+                slots[walked + 1] = skip(slots[walked], slotType(walked));
+            }
+            return slots[slot];
+        }
+
+        private FieldType slotType(int slot) {
+            return switch (kind) {
+            case SCHEMA -> fields.get(slot);
+            case INT_ARRAY -> FieldType.INT;
+            case DOUBLE_ARRAY -> slot == 0 ? FieldType.INT : FieldType.DOUBLE;
+            case LONG_ARRAY -> slot == 0 ? FieldType.INT : FieldType.LONG;
+            default -> slot == 0 ? FieldType.INT : FieldType.OBJECT;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return getType();
+        }
+    }
+
+    private Object readObject(int offset) {
+        int token = ((Number) values.get(offset)).intValue();
+        if (token == 0) {
+            return null;
+        }
+        int id = token < 0 ? -token : register(offset);
+        int start = objectOffsets.get(id - 1);
+        String signature = strings.get(((Number) values.get(start)).intValue() - 1);
+        Kind kind = kind(signature);
+        return switch (kind) {
+        case STRING -> string(values.get(start + 1));
+        case INT -> boxed(signature, ((Number) values.get(start + 1)).intValue());
+        case DOUBLE -> signature.startsWith("java.lang.Float/") ? (Object) ((Number) values.get(start + 1)).floatValue()
+                : (Object) ((Number) values.get(start + 1)).doubleValue();
+        case LONG -> decodeLong(values.get(start + 1));
+        case DATE -> new Date(decodeLong(values.get(start + 1)));
+        default -> view(id, start, signature, kind);
+        };
+    }
+
+    private GwtObject view(int id, int start, String signature, Kind kind) {
+        while (views.size() < id) {
+            views.add(null);
+        }
+        GwtObject view = views.get(id - 1);
+        if (view == null) {
+            view = new GwtObject(start, signature, kind);
+            views.set(id - 1, view);
+        }
+        return view;
+    }
+
+    private static Object boxed(String signature, int value) {
+        if (signature.startsWith("java.lang.Boolean/")) {
+            return value != 0;
+        } else if (signature.startsWith("java.lang.Character/")) {
+            return (char) value;
+        } else if (signature.startsWith("java.lang.Byte/")) {
+            return (byte) value;
+        } else if (signature.startsWith("java.lang.Short/")) {
+            return (short) value;
+        }
+        return value;
+    }
+
+    /**
+     * Numbers the object whose type token is at the given offset, objects being met in order of appearance.
+     */
+    private int register(int offset) {
+        if (objectIds[offset] == 0) {
+            objectOffsets.add(offset);
+            objectIds[offset] = objectOffsets.size();
+        }
+        return objectIds[offset];
+    }
+
+    /**
+     * Returns the offset following a value of the given type.
+     */
+    private int skip(int offset, FieldType type) {
+        if (type != FieldType.OBJECT) {
+            return offset + 1;
+        }
+        int token = ((Number) values.get(offset)).intValue();
+        if (token <= 0) {
+            return offset + 1;
+        }
+        register(offset);
+        String signature = strings.get(token - 1);
+        int p = offset + 1;
+        switch (kind(signature)) {
+        case SCHEMA -> {
+            List<FieldType> fields = schemas.get(className(signature));
+            if (fields == null) {
+                throw new IllegalStateException("No schema for " + className(signature));
+            }
+            for (FieldType f : fields) {
+                p = skip(p, f);
+            }
+        }
+        case STRING, INT, DOUBLE, LONG, DATE -> p++;
+        case COLLECTION -> p = skipObjects(p + 1, ((Number) values.get(p)).intValue());
+        case MAP -> p = skipObjects(p + 1, 2 * ((Number) values.get(p)).intValue());
+        case LINKED_HASH_MAP -> p = skipObjects(p + 2, 2 * ((Number) values.get(p + 1)).intValue());
+        case INT_ARRAY, DOUBLE_ARRAY, LONG_ARRAY -> p += 1 + ((Number) values.get(p)).intValue();
+        }
+        return p;
+    }
+
+    private int skipObjects(int offset, int count) {
+        int p = offset;
+        for (int i = 0; i < count; i++) {
+            p = skip(p, FieldType.OBJECT);
+        }
+        return p;
+    }
+
+    private Kind kind(String signature) {
+        String name = className(signature);
+        if (schemas.containsKey(name)) {
+            return Kind.SCHEMA;
+        }
+        return switch (name) {
+        case "java.lang.String" -> Kind.STRING;
+        case "java.lang.Integer", "java.lang.Boolean", "java.lang.Short", "java.lang.Byte", "java.lang.Character" -> Kind.INT;
+        case "java.lang.Double", "java.lang.Float" -> Kind.DOUBLE;
+        case "java.lang.Long" -> Kind.LONG;
+        case "java.util.Date", "java.sql.Date", "java.sql.Timestamp" -> Kind.DATE;
+        case "java.util.ArrayList", "java.util.LinkedList", "java.util.Vector", "java.util.HashSet",
+                "java.util.LinkedHashSet", "java.util.Arrays$ArrayList" -> Kind.COLLECTION;
+        case "java.util.HashMap", "java.util.IdentityHashMap" -> Kind.MAP;
+        case "java.util.LinkedHashMap" -> Kind.LINKED_HASH_MAP;
+        case "[I", "[Z", "[B", "[S", "[C" -> Kind.INT_ARRAY;
+        case "[D", "[F" -> Kind.DOUBLE_ARRAY;
+        case "[J" -> Kind.LONG_ARRAY;
+        default -> {
+            if (name.startsWith("[")) {
+                yield Kind.COLLECTION;
+            }
+            // Unknown classes are read as objects without fields, which cannot be skipped
+            yield Kind.SCHEMA;
+        }
+        };
+    }
+
+    private static String className(String signature) {
+        int slash = signature.indexOf('/');
+        return slash >= 0 ? signature.substring(0, slash) : signature;
+    }
+
+    private String string(Object index) {
+        int i = ((Number) index).intValue();
+        return i > 0 ? strings.get(i - 1) : null;
+    }
+
+    /**
+     * Decodes a long serialized as a base-64 string by GWT.
+     */
+    static long decodeLong(Object value) {
+        if (value instanceof Number n) {
+            return n.longValue();
+        }
+        long v = 0;
+        for (char c : ((String) value).toCharArray()) {
+            int digit = BASE64.indexOf(c);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid long: " + value);
+            }
+            v = (v << 6) + digit;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpRequest.Builder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.donvip.glamscrap.Gwt.TypedValue;
+
+/**
+ * GWT-RPC request compiled once from its {@link TypedValue} tree: the string table is built with a hash index, and
+ * the payload is kept as text fragments around the {@linkplain TypedValue#parameter(String) parameters}, so that
+ * rendering a variant of the request only appends the fragments and the parameter values.
+ * <p>
+ * Parameters are integer or boolean values, which do not change the string table. Templates are immutable and can be
+ * shared between threads.
+ */
+public final class GwtRequestTemplate {
+
+    private static final int PROTOCOL_VERSION = 7;
+    private static final int FLAGS = 0;
+
+    private final String uri;
+    private final String baseUrl;
+    private final String permutation;
+    /** Fragments of the payload, between parameters */
+    private final String[] fragments;
+    private final int length;
+
+    private GwtRequestTemplate(String uri, String baseUrl, String permutation, List<String> fragments) {
+        this.uri = uri;
+        this.baseUrl = baseUrl;
+        this.permutation = permutation;
+        this.fragments = fragments.toArray(new String[0]);
+        this.length = fragments.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Compiles a request.
+     */
+    public static GwtRequestTemplate compile(String uri, String baseUrl, String strongNamePolicyFile, String permutation, String service, String method, List<TypedValue> typedValues) {
+        Compiler c = new Compiler();
+        c.addString(requireNonNull(baseUrl));
+        c.addString(requireNonNull(strongNamePolicyFile));
+        c.addString(requireNonNull(service));
+        c.addString(requireNonNull(method));
+        for (TypedValue typedVal : typedValues) {
+            c.addStrings(typedVal);
+        }
+
+        StringBuilder sb = c.current;
+        sb.append(PROTOCOL_VERSION).append('|').append(FLAGS).append('|').append(c.strings.size()).append('|');
+        for (String s : c.strings) {
+            sb.append(s).append('|');
+        }
+        sb.append("1|2|3|4|"); // baseUrl, strongNamePolicyFile, service, method
+        sb.append(typedValues.size()).append('|'); // number of arguments
+        for (TypedValue typedVal : typedValues) {
+            c.addIndex(typedVal.declaredType());
+        }
+        for (TypedValue typedVal : typedValues) {
+            c.addValueIndice(typedVal);
+        }
+        c.fragments.add(c.current.toString());
+        return new GwtRequestTemplate(uri, baseUrl, permutation, c.fragments);
+    }
+
+    private static final class Compiler {
+        final List<String> strings = new ArrayList<>();
+        /** 1-based index of the first occurrence of each string */
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> fragments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        void addString(String s) {
+            strings.add(s);
+            indexes.putIfAbsent(s, strings.size());
+        }
+
+        void addStrings(TypedValue typedVal) {
+            if (typedVal.declaredType() != null && !indexes.containsKey(typedVal.declaredType())) {
+                addString(typedVal.declaredType());
+            }
+            if (typedVal.runtimeType() != null && !indexes.containsKey(typedVal.runtimeType())) {
+                addString(typedVal.runtimeType());
+            }
+            if (typedVal.stringValue() != null && !indexes.containsKey(typedVal.stringValue())) {
+                addString(typedVal.stringValue());
+            }
+            for (TypedValue field : typedVal.fieldsInAlphabeticalOrder()) {
+                addStrings(requireNonNull(field));
+            }
+        }
+
+        void addIndex(String s) {
+            current.append(s != null ? indexes.getOrDefault(s, 0) : 0).append('|');
+        }
+
+        void addValueIndice(TypedValue typedVal) {
+            if (typedVal.runtimeType() != null) {
+                addIndex(typedVal.runtimeType());
+            }
+            if (typedVal.fieldsInAlphabeticalOrder().isEmpty()) {
+                if (typedVal.declaredType() != null && typedVal.declaredType().startsWith("java.lang.String")) {
+                    addIndex(typedVal.stringValue());
+                } else if (typedVal.runtimeType() != null && (typedVal.runtimeType().startsWith("java.lang.Integer") || typedVal.runtimeType().startsWith("java.lang.Boolean"))) {
+                    if (typedVal.parameter()) {
+                        fragments.add(current.toString());
+                        current = new StringBuilder("|");
+                    } else {
+                        current.append(typedVal.intValue()).append('|');
+                    }
+                }
+            }
+            for (TypedValue field : typedVal.fieldsInAlphabeticalOrder()) {
+                addValueIndice(field);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of parameters of the request.
+     */
+    public int getParameterCount() {
+        return fragments.length - 1;
+    }
+
+    /**
+     * Renders the payload of the request.
+     *
+     * @param parameters values of the parameters, in the order of the {@link TypedValue} tree
+     */
+    public String payload(int... parameters) {
+        if (parameters.length != getParameterCount()) {
+            throw new IllegalArgumentException("Expected " + getParameterCount() + " parameters, got " + parameters.length);
+        }
+        StringBuilder sb = new StringBuilder(length + 11 * parameters.length);
+        sb.append(fragments[0]);
+        for (int i = 0; i < parameters.length; i++) {
+            sb.append(parameters[i]).append(fragments[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    public Builder requestBuilder(int... parameters) {
+        return HttpRequest.newBuilder()
+            .headers("Content-Type", "text/x-gwt-rpc; charset=utf-8", "X-GWT-Module-Base", baseUrl, "X-GWT-Permutation", permutation)
+            .method("POST", BodyPublishers.ofString(payload(parameters)))
+            .uri(URI.create(uri));
+    }
+
+    public HttpRequest request(int... parameters) {
+        return requestBuilder(parameters).build();
+    }
+}
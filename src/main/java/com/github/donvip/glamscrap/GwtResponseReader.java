@@ -0,0 +1,221 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+/**
+ * Reader of GWT-RPC responses. The {@code //OK[...]} payload is a JavaScript array literal, split by
+ * {@code .concat([...],...)} calls when it is large, holding the values in reverse order, then the string table as a
+ * nested array of quoted strings, the flags and the protocol version.
+ * <p>
+ * Numbers are read as Nashorn does: integral values in the {@code int} range as {@link Integer}, unless written with
+ * a decimal point ({@code 2048.0}), others as {@link Double}. A reader is used for a single response.
+ */
+final class GwtResponseReader {
+
+    private final String s;
+    private int pos;
+
+    private GwtResponseReader(String s, int pos) {
+        this.s = s;
+        this.pos = pos;
+    }
+
+    static GwtResponse read(String response) {
+        if (!response.startsWith("//OK")) {
+            throw new IllegalArgumentException("Invalid response: " + response);
+        }
+        GwtResponseReader reader = new GwtResponseReader(response, 4);
+        List<Object> list = reader.readPayload();
+        Collections.reverse(list);
+        if (list.size() < 3 || !(list.get(2) instanceof List<?> strings)) {
+            throw new IllegalArgumentException("Invalid response: " + response);
+        }
+        return new GwtResponse((Integer) list.get(0), (Integer) list.get(1),
+                strings.stream().map(x -> (String) x).toList(), list.subList(3, list.size()));
+    }
+
+    private List<Object> readPayload() {
+        skipWhitespace();
+        List<Object> list = readArray();
+        skipWhitespace();
+        if (s.startsWith(".concat(", pos)) {
+            pos += ".concat(".length();
+            do {
+                skipWhitespace();
+                list.addAll(readArray());
+                skipWhitespace();
+            } while (consume(','));
+            expect(')');
+        }
+        skipWhitespace();
+        consume(';');
+        skipWhitespace();
+        if (pos < s.length()) {
+            throw error("end of response");
+        }
+        return list;
+    }
+
+    private List<Object> readArray() {
+        expect('[');
+        List<Object> list = new ArrayList<>();
+        skipWhitespace();
+        if (consume(']')) {
+            return list;
+        }
+        do {
+            skipWhitespace();
+            list.add(readValue());
+            skipWhitespace();
+        } while (consume(','));
+        expect(']');
+        return list;
+    }
+
+    private Object readValue() {
+        if (pos >= s.length()) {
+            throw error("value");
+        }
+        char c = s.charAt(pos);
+        return switch (c) {
+        case '[' -> readArray();
+        case '"', '\'' -> readString(c);
+        default -> readNumber();
+        };
+    }
+
+    private String readString(char quote) {
+        pos++;
+        StringBuilder sb = null;
+        int start = pos;
+        while (true) {
+            if (pos >= s.length()) {
+                throw error("end of string");
+            }
+            char c = s.charAt(pos);
+            if (c == quote) {
+                String value = sb == null ? s.substring(start, pos) : sb.append(s, start, pos).toString();
+                pos++;
+                return value;
+            } else if (c == '\\') {
+                if (sb == null) {
+                    sb = new StringBuilder();
+                }
+                sb.append(s, start, pos);
+                pos++;
+                sb.append(readEscape());
+                start = pos;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private char readEscape() {
+        if (pos >= s.length()) {
+            throw error("escape sequence");
+        }
+        char c = s.charAt(pos++);
+        return switch (c) {
+        case 'b' -> '\b';
+        case 'f' -> '\f';
+        case 'n' -> '\n';
+        case 'r' -> '\r';
+        case 't' -> '\t';
+        case 'v' -> '\u000B';
+        case '0' -> '\0';
+        case 'x' -> readHex(2);
+        case 'u' -> readHex(4);
+        default -> c;
+        };
+    }
+
+    private char readHex(int length) {
+        if (pos + length > s.length()) {
+            throw error("hexadecimal escape sequence");
+        }
+        try {
+            char c = (char) Integer.parseInt(s, pos, pos + length, 16);
+            pos += length;
+            return c;
+        } catch (NumberFormatException e) {
+            throw error("hexadecimal escape sequence");
+        }
+    }
+
+    private Number readNumber() {
+        int start = pos;
+        while (pos < s.length() && "+-.0123456789eE".indexOf(s.charAt(pos)) >= 0) {
+            pos++;
+        }
+        double value;
+        if (s.startsWith("NaN", pos)) {
+            pos += 3;
+            value = Double.NaN;
+        } else if (s.startsWith("Infinity", pos)) {
+            pos += 8;
+            value = s.charAt(start) == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        } else {
+            try {
+                value = Double.parseDouble(s.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("number");
+            }
+        }
+        int i = (int) value;
+        // Literals with a decimal point, such as doubles written by GWT ("2048.0"), stay doubles, as does negative zero
+        if (i == value && (i != 0 || 1 / value > 0) && !hasDecimalPoint(start, pos)) {
+            return i;
+        }
+        return value;
+    }
+
+    private boolean hasDecimalPoint(int start, int end) {
+        int dot = s.indexOf('.', start);
+        return dot >= 0 && dot < end;
+    }
+
+    private void skipWhitespace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private boolean consume(char c) {
+        if (pos < s.length() && s.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("'" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException("Invalid GWT response, expected " + expected + " at offset " + pos);
+    }
+}
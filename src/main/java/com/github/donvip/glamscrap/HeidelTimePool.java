@@ -0,0 +1,99 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import de.unihd.dbs.heideltime.standalone.HeidelTimeStandalone;
+
+/**
+ * Bounded pool of HeidelTime engines, which are not safe for concurrent use. Engines are expensive to create, they
+ * are created lazily when all existing ones are busy, up to the pool size. Time spent waiting for an engine is
+ * measured.
+ */
+final class HeidelTimePool {
+
+    @FunctionalInterface
+    interface Task<T, E extends Exception> {
+        T run(HeidelTimeStandalone engine) throws E;
+    }
+
+    private final int size;
+    private final Supplier<HeidelTimeStandalone> factory;
+    private final BlockingQueue<HeidelTimeStandalone> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    HeidelTimePool(int size, Supplier<HeidelTimeStandalone> factory) {
+        this.size = Math.max(1, size);
+        this.factory = factory;
+    }
+
+    /**
+     * Runs a task with an engine of the pool, waiting for one to be available if needed.
+     */
+    <T, E extends Exception> T run(Task<T, E> task) throws E, InterruptedException {
+        HeidelTimeStandalone engine = borrow();
+        try {
+            return task.run(engine);
+        } finally {
+            idle.add(engine);
+        }
+    }
+
+    private HeidelTimeStandalone borrow() throws InterruptedException {
+        long start = System.nanoTime();
+        HeidelTimeStandalone engine = idle.poll();
+        if (engine == null) {
+            if (created.getAndUpdate(n -> n < size ? n + 1 : n) < size) {
+                try {
+                    engine = factory.get();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                engine = idle.take();
+                long wait = System.nanoTime() - start;
+                waitNanos.add(wait);
+                maxWaitNanos.accumulate(wait);
+            }
+        }
+        borrows.increment();
+        return engine;
+    }
+
+    /**
+     * Returns a summary of the pool usage: engines created, borrows, and time spent waiting for an engine.
+     */
+    String getStatistics() {
+        long n = borrows.sum();
+        long wait = waitNanos.sum();
+        return String.format("%d/%d engines, %d borrows, waited %d ms (average %.3f ms, max %d ms)", created.get(), size,
+                n, TimeUnit.NANOSECONDS.toMillis(wait), n > 0 ? wait / 1e6 / n : 0.0,
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Checks the integrity of downloaded images from their header and trailer only, without decoding them: truncated
+ * files lack the end marker of their format. Only the first and last bytes of files are mapped in memory.
+ */
+final class ImageVerifier {
+
+    private static final int TRAILER_LENGTH = 64;
+
+    private static final byte[] JPEG_SOI = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /** Length and type of the IEND chunk, followed by its CRC */
+    private static final byte[] PNG_IEND = {0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82};
+
+    private ImageVerifier() {
+        // Hide public constructor
+    }
+
+    /**
+     * Verifies an image file.
+     *
+     * @param expectedSize expected size of the file, or {@code null} if unknown
+     * @return the reason why the file is suspect, or {@code null} if it looks complete. Files which are neither JPEG
+     *         nor PNG are only checked against their expected size
+     */
+    static String verify(Path file, Long expectedSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return "empty file";
+            } else if (expectedSize != null && size != expectedSize) {
+                return "size " + size + " instead of " + expectedSize;
+            }
+            MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, Math.min(size, PNG_SIGNATURE.length));
+            int trailerLength = (int) Math.min(size, TRAILER_LENGTH);
+            MappedByteBuffer trailer = channel.map(MapMode.READ_ONLY, size - trailerLength, trailerLength);
+            if (startsWith(header, JPEG_SOI)) {
+                return hasJpegEoi(trailer) ? null : "no JPEG end of image marker";
+            } else if (startsWith(header, PNG_SIGNATURE)) {
+                return endsWith(trailer, PNG_IEND) ? null : "no PNG IEND chunk";
+            }
+            return null;
+        }
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+        if (buffer.limit() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWith(ByteBuffer buffer, byte[] suffix) {
+        int offset = buffer.limit() - suffix.length;
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (buffer.get(offset + i) != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks for the EOI marker ({@code FF D9}) in the trailer. Some encoders and tools append data after it, while
+     * entropy-coded data cannot contain it, so it does not have to be at the very end.
+     */
+    private static boolean hasJpegEoi(ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i > 0; i--) {
+            if (buffer.get(i) == (byte) 0xD9 && buffer.get(i - 1) == (byte) 0xFF) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,9 +16,15 @@
  */
 package com.github.donvip.glamscrap;
 
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,57 +49,290 @@ public abstract class Parser {
     }
 
     // -- HeidelTime
-    private static final HeidelTimeStandalone timeNarrative = new HeidelTimeStandalone(
-            Language.FRENCH, DocumentType.NARRATIVES, OutputType.XMI,
-            System.getenv("CI") != null ? "./target/classes/config.github.props" : "./target/classes/config.windows.props");
+    /** Name of the TreeTagger parameter file used by a long-lived TreeTagger process, instead of one per document */
+    private static final String TREETAGGER_SERVICE = System.getProperty("glamscrap.treetagger.service");
+
+    static final String HEIDELTIME_CONFIG = System.getenv("CI") != null
+            ? "./target/classes/config.github.props" : "./target/classes/config.windows.props";
+
+    /** Each engine holds its own UIMA type system and resources, the default keeps memory use modest on large hosts */
+    private static final HeidelTimePool timeNarrative = new HeidelTimePool(
+            Integer.getInteger("glamscrap.heideltime.poolSize", 2), Parser::newHeidelTime);
+
+    /** Maximum number of texts processed by HeidelTime in one document */
+    private static final int BATCH_SIZE = Integer.getInteger("glamscrap.heideltime.batchSize", 50);
+    private static final Pattern SENTENCE_END = Pattern.compile("[.!?]\\s*$");
+
+    private static final int DATE_CACHE_SIZE = Integer.getInteger("glamscrap.dateCache.size", 100_000);
+    /** Dates extracted from texts during this run and previous ones, disabled if its size is 0 */
+    private static final DateCache dateCache = new DateCache(DATE_CACHE_SIZE > 0
+            ? Paths.get(System.getProperty("glamscrap.dateCache.file", "output/dates.tsv"))
+            : null, DATE_CACHE_SIZE);
 
     protected Parser() {
         // Hide public constructor
     }
 
     protected static String extractDate(String text, final Notice n) {
+        return extractDate(text, n, false);
+    }
+
+    /**
+     * @param refresh ignore dates cached by previous runs, so that changes of the extraction rules are applied
+     */
+    private static String extractDate(String text, final Notice n, boolean refresh) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        // Common regular forms do not need the full NLP pipeline
+        String scanned = FrenchDateScanner.scan(text);
+        if (scanned != null) {
+            return applyDate(n, scanned);
+        }
+        String key = DateCache.normalize(text);
+        String cached = refresh ? null : dateCache.get(key);
+        if (cached != null) {
+            return applyDate(n, cached);
+        }
+        try {
+            String date = extractDateWithHeidelTime(text, n);
+            dateCache.put(key, date);
+            return date;
+        } catch (DocumentCreationTimeMissingException e) {
+            LOGGER.catching(e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Sets a date found in a text on the notice, with its precision.
+     *
+     * @param v date in ISO format ({@code yyyy}, {@code yyyy-MM} or {@code yyyy-MM-dd}), or empty string if none
+     */
+    private static String applyDate(final Notice n, String v) {
+        switch ((int) v.chars().filter(c -> c == '-').count()) {
+        case 0:
+            return v.isEmpty() ? null : parseYear(n, v);
+        case 1:
+            return parseYearMonth(n, v);
+        default:
+            return parseLocalDate(n, v);
+        }
+    }
+
+    static String extractDateWithHeidelTime(String text, final Notice n)
+            throws DocumentCreationTimeMissingException, InterruptedException {
+        ResultFormatter resultFormatter = jcas -> {
+            FSIterator<?> iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
+            while (iterTimex.hasNext()) {
+                String v = toDate((Timex3) iterTimex.next());
+                if (v != null) {
+                    return applyDate(n, v);
+                }
+            }
+            return null;
+        };
+        return timeNarrative.run(engine -> engine.process(text, resultFormatter));
+    }
+
+    /**
+     * Returns the date of a time expression in ISO format ({@code yyyy}, {@code yyyy-MM} or {@code yyyy-MM-dd}), or
+     * {@code null} if it is not a date precise enough.
+     */
+    private static String toDate(Timex3 t) {
+        // http://www.timeml.org/publications/timeMLdocs/timeml_1.2.1.html#timex3
+        String v = t.getTimexValue();
+        if (v.startsWith("XXXX-")) {
+            return null;
+        }
+        switch (t.getTimexType()) {
+        case "DATE":
+            if ("XXXX".equals(v) || v.matches(".*_REF") || v.matches("\\d{2}") || v.matches("\\d{3}")) {
+                return null; // XXXX, PAST_REF, PRESENT_REF, FUTURE_REF, Century, decade
+            } else if (v.matches("\\d{4}-\\d{2}-\\d{2}")) { // YYYY-MM-DD
+                return v;
+            } else if (v.matches("\\d{4}-\\d{2}-\\d{1}")) { // YYYY-MM-D
+                return new StringBuilder(v).insert(v.length()-1, "0").toString();
+            } else if (v.matches("\\d{4}-\\d{2}")) { // YYYY-MM
+                return v;
+            } else if (v.matches("(\\d{4})-(WI|SP|SU|AU)")) { // YYYY-Season
+                return v.substring(0, v.indexOf('-'));
+            } else if (v.matches("\\d{4}")) { // YYYY
+                return v;
+            } else {
+                throw new UnsupportedOperationException(v);
+            }
+        case "DURATION", "TIME", "SET":
+            return null;
+        default:
+            throw new UnsupportedOperationException(t.getTimexType()+" / "+t.getTimexValue());
+        }
+    }
+
+    /**
+     * Extracts the dates of many notices at once, with the same results as {@link #extractDate(String, Notice)} for
+     * each one. Texts needing HeidelTime are joined, by batches, into documents processed in one run, each time
+     * expression being mapped back to its text by offset.
+     *
+     * @param texts texts to extract dates from
+     * @param notices notices of the texts, in the same order
+     * @return the date extracted from each text, or {@code null}
+     */
+    protected static List<String> extractDates(List<String> texts, List<Notice> notices) {
+        return extractDates(texts, notices, false);
+    }
+
+    private static List<String> extractDates(List<String> texts, List<Notice> notices, boolean refresh) {
+        String[] dates = new String[texts.size()];
+        List<Integer> batch = new ArrayList<>();
+        for (int k = 0; k < texts.size(); k++) {
+            String text = texts.get(k);
+            if (!text.isEmpty()) {
+                String scanned = FrenchDateScanner.scan(text);
+                String cached = scanned != null || refresh ? scanned : dateCache.get(DateCache.normalize(text));
+                if (cached != null) {
+                    dates[k] = applyDate(notices.get(k), cached);
+                } else {
+                    batch.add(k);
+                    if (batch.size() == BATCH_SIZE) {
+                        extractDatesInBatch(texts, notices, batch, dates, refresh);
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            extractDatesInBatch(texts, notices, batch, dates, refresh);
+        }
+        return Arrays.asList(dates);
+    }
+
+    /**
+     * Extracts the dates of notices, replacing previous ones: from their date text if any, otherwise from their
+     * description, then from their title if the description has no date.
+     *
+     * @return number of notices dated
+     */
+    public static int extractDates(List<Notice> notices) {
+        return extractDates(notices, false);
+    }
+
+    /**
+     * @param refresh ignore dates cached by previous runs, so that changes of the extraction rules are applied
+     * @see #extractDates(List)
+     */
+    public static int extractDates(List<Notice> notices, boolean refresh) {
+        List<Notice> undated = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (Notice n : notices) {
+            n.setDate(null);
+            n.setYearMonth(null);
+            n.setYear(null);
+            texts.add(Objects.requireNonNullElse(n.getDateText() != null ? n.getDateText() : n.getDescription(), ""));
+        }
+        List<String> dates = extractDates(texts, notices, refresh);
+        texts.clear();
+        for (int k = 0; k < notices.size(); k++) {
+            Notice n = notices.get(k);
+            if (dates.get(k) == null && n.getDateText() == null) {
+                undated.add(n);
+                texts.add(Objects.requireNonNullElse(n.getTitle(), ""));
+            }
+        }
+        extractDates(texts, undated, refresh);
+        return (int) notices.stream().filter(n -> n.getYear() != null).count();
+    }
+
+    private static void extractDatesInBatch(List<String> texts, List<Notice> notices, List<Integer> batch, String[] dates,
+            boolean refresh) {
+        // Texts separated by blank lines, each one ending a sentence
+        StringBuilder document = new StringBuilder();
+        int[] starts = new int[batch.size()];
+        int[] ends = new int[batch.size()];
+        for (int b = 0; b < batch.size(); b++) {
+            String text = texts.get(batch.get(b));
+            starts[b] = document.length();
+            document.append(text);
+            ends[b] = document.length();
+            if (!SENTENCE_END.matcher(text).find()) {
+                document.append(" .");
+            }
+            document.append("\n\n");
+        }
+        String[] found = new String[batch.size()];
+        boolean[] alone = new boolean[batch.size()];
         try {
-            ResultFormatter resultFormatter = jcas -> {
+            timeNarrative.run(engine -> engine.process(document.toString(), jcas -> {
                 FSIterator<?> iterTimex = jcas.getAnnotationIndex(Timex3.type).iterator();
                 while (iterTimex.hasNext()) {
-                    // http://www.timeml.org/publications/timeMLdocs/timeml_1.2.1.html#timex3
                     Timex3 t = (Timex3) iterTimex.next();
-                    String v = t.getTimexValue();
-                    if (v.startsWith("XXXX-")) {
+                    int b = Arrays.binarySearch(starts, t.getBegin());
+                    b = b >= 0 ? b : -b - 2;
+                    if (b < 0 || found[b] != null || alone[b]) {
+                        continue;
+                    }
+                    if (t.getEnd() > ends[b]) {
+                        // Expression spanning several texts
+                        alone[b] = true;
                         continue;
                     }
-                    switch (t.getTimexType()) {
-                    case "DATE":
-                        if ("XXXX".equals(v) || v.matches(".*_REF") || v.matches("\\d{2}") || v.matches("\\d{3}")) {
-                            continue; // XXXX, PAST_REF, PRESENT_REF, FUTURE_REF, Century, decade
-                        } else if (v.matches("\\d{4}-\\d{2}-\\d{2}")) { // YYYY-MM-DD
-                            return parseLocalDate(n, v);
-                        } else if (v.matches("\\d{4}-\\d{2}-\\d{1}")) { // YYYY-MM-D
-                            return parseLocalDate(n, new StringBuilder(v).insert(v.length()-1, "0").toString());
-                        } else if (v.matches("\\d{4}-\\d{2}")) { // YYYY-MM
-                            return parseYearMonth(n, v);
-                        } else if (v.matches("(\\d{4})-(WI|SP|SU|AU)")) { // YYYY-Season
-                            return parseYear(n, v.substring(0, v.indexOf('-')));
-                        } else if (v.matches("\\d{4}")) { // YYYY
-                            return parseYear(n, v);
+                    String v = toDate(t);
+                    if (v != null) {
+                        if (t.getCoveredText().contains(v.substring(0, 4))) {
+                            found[b] = v;
                         } else {
-                            throw new UnsupportedOperationException(v);
+                            // Year inferred from a date of a previous text
+                            alone[b] = true;
                         }
-                    case "DURATION", "TIME", "SET":
-                        continue;
-                    default:
-                        throw new UnsupportedOperationException(t.getTimexType()+" / "+t.getTimexValue());
                     }
                 }
                 return null;
-            };
-            return text.isEmpty() ? null : timeNarrative.process(text, resultFormatter);
+            }));
         } catch (DocumentCreationTimeMissingException e) {
             LOGGER.catching(e);
-            return null;
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (int b = 0; b < batch.size(); b++) {
+            int k = batch.get(b);
+            if (alone[b]) {
+                // The context of other texts may have changed the result, process this text alone
+                dates[k] = extractDate(texts.get(k), notices.get(k), refresh);
+            } else {
+                dates[k] = applyDate(notices.get(k), found[b] != null ? found[b] : "");
+                dateCache.put(DateCache.normalize(texts.get(k)), dates[k]);
+            }
         }
     }
 
+    private static HeidelTimeStandalone newHeidelTime() {
+        if (TREETAGGER_SERVICE != null) {
+            return new TreeTaggerServiceHeidelTime(Language.FRENCH, DocumentType.NARRATIVES, HEIDELTIME_CONFIG,
+                    TREETAGGER_SERVICE);
+        }
+        return new HeidelTimeStandalone(Language.FRENCH, DocumentType.NARRATIVES, OutputType.XMI, HEIDELTIME_CONFIG);
+    }
+
+    /**
+     * Logs the usage of HeidelTime engines, shared by all parsers.
+     */
+    public static void logStatistics() {
+        LOGGER.info("HeidelTime: {}", timeNarrative.getStatistics());
+        LOGGER.info("Date cache: {}", dateCache.getStatistics());
+    }
+
+    /**
+     * Saves dates extracted during this run, for the next ones.
+     */
+    public static void saveDateCache() {
+        dateCache.save();
+    }
+
     private static String parseYear(final Notice n, String v) {
         n.setYear(Year.parse(v));
         return n.getYear().toString();
@@ -0,0 +1,154 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Long-lived TreeTagger process, fed with tokens through its standard input and read from its standard output,
+ * instead of a process started for each document. {@code tree-tagger-flush} is required, as the plain binary buffers
+ * its output and would block the reader. The process is restarted if it fails, and destroyed on shutdown.
+ * <p>
+ * TreeTagger needs a few tokens of lookahead to tag the last tokens of a document: each document is framed by SGML
+ * tags, passed through unchanged with {@code -sgml}, and followed by filler tokens whose tags are skipped.
+ * <p>
+ * Not thread-safe: each HeidelTime engine has its own process.
+ */
+final class TreeTaggerService implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String BEGIN = "<glamscrap-begin/>";
+    private static final String END = "<glamscrap-end/>";
+    private static final int FILLERS = 8;
+
+    private static final Set<TreeTaggerService> SERVICES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> SERVICES.forEach(TreeTaggerService::close)));
+    }
+
+    private final List<String> command;
+    private volatile Process process;
+    private BufferedWriter in;
+    private BufferedReader out;
+
+    /**
+     * @param home TreeTagger installation directory, with {@code bin} and {@code lib} directories
+     * @param model name of the parameter file in {@code lib}
+     * @throws IllegalStateException if the installation has no {@code tree-tagger-flush} executable
+     */
+    TreeTaggerService(Path home, String model) {
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+        Path flush = home.resolve("bin").resolve(windows ? "tree-tagger-flush.exe" : "tree-tagger-flush");
+        if (!Files.isExecutable(flush)) {
+            throw new IllegalStateException("No TreeTagger flushing executable: " + flush);
+        }
+        this.command = List.of(flush.toString(),
+                "-quiet", "-sgml", "-token", home.resolve("lib").resolve(model).toString());
+        SERVICES.add(this);
+    }
+
+    private void start() throws IOException {
+        LOGGER.debug("Starting {}", command);
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tags tokens, restarting the process once if it fails.
+     *
+     * @return the part-of-speech tag of each token
+     */
+    List<String> tag(List<String> tokens) throws IOException {
+        try {
+            return tagOnce(tokens);
+        } catch (IOException e) {
+            LOGGER.warn("TreeTagger failed, restarting it: {}", e.getMessage());
+            close();
+            return tagOnce(tokens);
+        }
+    }
+
+    private List<String> tagOnce(List<String> tokens) throws IOException {
+        if (process == null || !process.isAlive()) {
+            start();
+        }
+        in.write(BEGIN);
+        in.newLine();
+        for (String token : tokens) {
+            // One token per line, TreeTagger does not accept empty ones
+            in.write(token.isBlank() ? "." : token.replace('\n', ' '));
+            in.newLine();
+        }
+        in.write(END);
+        in.newLine();
+        for (int i = 0; i < FILLERS; i++) {
+            in.write('.');
+            in.newLine();
+        }
+        in.flush();
+        // Skip the fillers of the previous document
+        String line;
+        do {
+            line = readLine();
+        } while (!BEGIN.equals(line));
+        List<String> tags = new ArrayList<>(tokens.size());
+        while (!END.equals(line = readLine())) {
+            int tab = line.indexOf('\t');
+            tags.add(tab >= 0 ? line.substring(tab + 1) : "");
+        }
+        if (tags.size() != tokens.size()) {
+            throw new IOException("Got " + tags.size() + " tags for " + tokens.size() + " tokens");
+        }
+        return tags;
+    }
+
+    private String readLine() throws IOException {
+        String line = out.readLine();
+        if (line == null) {
+            throw new IOException("TreeTagger process ended");
+        }
+        return line;
+    }
+
+    @Override
+    public void close() {
+        // Also called by the shutdown hook, while the process may be in use
+        Process p = process;
+        process = null;
+        if (p != null) {
+            p.destroy();
+        }
+    }
+}
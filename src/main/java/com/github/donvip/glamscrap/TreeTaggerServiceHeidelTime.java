@@ -0,0 +1,153 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.XMLInputSource;
+
+import de.unihd.dbs.heideltime.standalone.Config;
+import de.unihd.dbs.heideltime.standalone.DocumentType;
+import de.unihd.dbs.heideltime.standalone.HeidelTimeStandalone;
+import de.unihd.dbs.heideltime.standalone.OutputType;
+import de.unihd.dbs.heideltime.standalone.components.JCasFactory;
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.heideltime.standalone.components.impl.JCasFactoryImpl;
+import de.unihd.dbs.heideltime.standalone.components.impl.UimaContextImpl;
+import de.unihd.dbs.heideltime.standalone.exceptions.DocumentCreationTimeMissingException;
+import de.unihd.dbs.uima.annotator.heideltime.HeidelTime;
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.annotator.treetagger.TreeTaggerWrapper;
+import de.unihd.dbs.uima.types.heideltime.Dct;
+import de.unihd.dbs.uima.types.heideltime.Sentence;
+import de.unihd.dbs.uima.types.heideltime.Token;
+
+/**
+ * HeidelTime engine tagging parts of speech with a {@link TreeTaggerService}, instead of the TreeTagger process
+ * HeidelTime starts for each document. HeidelTime creates its tagger inside {@code process}, so the engine overrides
+ * {@link #process(String, Date, ResultFormatter)}, to which the other {@code process} methods delegate, and holds its
+ * own annotator and type system.
+ * <p>
+ * Tokens are still produced by the HeidelTime tokenizer. Sentences are delimited by {@code SENT} tags, then improved
+ * for the language, as HeidelTime does. Interval tagging is not supported.
+ */
+final class TreeTaggerServiceHeidelTime extends HeidelTimeStandalone {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final TreeTaggerService service;
+    private final HeidelTime heidelTime = new HeidelTime();
+    private final JCasFactory jcasFactory;
+    private final TreeTaggerWrapper tokenizer = new TreeTaggerWrapper();
+    private final TreeTaggerWrapper sentenceImprover = new TreeTaggerWrapper();
+
+    /**
+     * @param configPath HeidelTime configuration file, read if no configuration is loaded yet
+     * @param model name of the TreeTagger parameter file
+     * @throws IllegalStateException if HeidelTime or TreeTagger cannot be initialized
+     */
+    TreeTaggerServiceHeidelTime(Language language, DocumentType type, String configPath, String model) {
+        setLanguage(language);
+        setDocumentType(type);
+        setOutputType(OutputType.XMI);
+        if (!Config.isInitialized()) {
+            readConfigFile(configPath);
+        }
+        String home = Config.get(Config.TREETAGGERHOME);
+        service = new TreeTaggerService(Paths.get(home), model);
+        try {
+            heidelTime.initialize(new UimaContextImpl(language, type, false));
+            jcasFactory = new JCasFactoryImpl(new TypeSystemDescription[] {
+                    UIMAFramework.getXMLParser().parseTypeSystemDescription(new XMLInputSource(
+                            getClass().getClassLoader().getResource(Config.get(Config.TYPESYSTEMHOME)))) });
+        } catch (UIMAException | IOException e) {
+            throw new IllegalStateException("Unable to initialize HeidelTime", e);
+        }
+        tokenizer.initialize(language, home, true, false, false, false);
+        sentenceImprover.initialize(language, home, false, false, false, false);
+        LOGGER.debug("Using TreeTagger service with {}", model);
+    }
+
+    /**
+     * @throws UncheckedIOException if the TreeTagger service fails
+     * @throws IllegalStateException if the document cannot be annotated
+     */
+    @Override
+    public String process(String document, Date documentCreationTime, ResultFormatter resultFormatter)
+            throws DocumentCreationTimeMissingException {
+        try {
+            JCas jcas = jcasFactory.createJCas();
+            jcas.setDocumentText(document);
+            if (documentCreationTime != null) {
+                Dct dct = new Dct(jcas);
+                dct.setValue(new SimpleDateFormat("yyyy.MM.dd'T'HH:mm").format(documentCreationTime));
+                dct.addToIndexes();
+            } else if (getDocumentType() == DocumentType.NEWS || getDocumentType() == DocumentType.COLLOQUIAL) {
+                throw new DocumentCreationTimeMissingException();
+            }
+            tokenizer.process(jcas);
+            tag(jcas);
+            sentenceImprover.process(jcas);
+            heidelTime.process(jcas);
+            return resultFormatter.format(jcas);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DocumentCreationTimeMissingException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Thrown by UIMA and result formatters
+            throw new IllegalStateException("Unable to process document with HeidelTime", e);
+        }
+    }
+
+    private void tag(JCas jcas) throws IOException {
+        List<Token> tokens = new ArrayList<>();
+        FSIterator<?> it = jcas.getAnnotationIndex(Token.type).iterator();
+        while (it.hasNext()) {
+            tokens.add((Token) it.next());
+        }
+        List<String> tags = service.tag(tokens.stream().map(Token::getCoveredText).toList());
+        int sentenceBegin = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            t.setPos(tags.get(i));
+            if (sentenceBegin < 0) {
+                sentenceBegin = t.getBegin();
+            }
+            if ("SENT".equals(tags.get(i)) || i == tokens.size() - 1) {
+                Sentence s = new Sentence(jcas);
+                s.setBegin(sentenceBegin);
+                s.setEnd(t.getEnd());
+                s.addToIndexes();
+                sentenceBegin = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * Serializes accesses to a Hibernate session and commits written entities by batches: a transaction is kept open
+ * until it contains {@code batchSize} writes, or its oldest write is older than {@code maxDelay}. A crash thus loses
+ * at most one batch.
+ * <p>
+ * A batch which cannot be committed is rolled back and the session cleared, entities read before being detached. The
+ * failure is thrown by the write committing the batch, or by the next write if the batch was committed in background.
+ */
+final class WriteBehindPersister implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Session session;
+    // ReentrantLock rather than synchronized to avoid pinning virtual threads
+    private final Lock lock = new ReentrantLock();
+    private final int batchSize;
+    private final long maxDelay;
+    private final ScheduledExecutorService flusher;
+
+    private int pending;
+    private long oldestPending;
+    private Runnable commitListener;
+    private Runnable rollbackListener;
+    /** Failure of a background commit, not reported yet */
+    private RuntimeException failure;
+
+    WriteBehindPersister(Session session, int batchSize, Duration maxDelay) {
+        this.session = session;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay.toNanos();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, maxDelay.toMillis() / 2);
+        flusher.scheduleWithFixedDelay(this::flushIfExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the listener notified after each successful commit, and periodically while no write is pending. Removes
+     * it if {@code null}.
+     */
+    void setCommitListener(Runnable listener) {
+        lock.lock();
+        try {
+            commitListener = listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the listener notified after a batch has been rolled back. Removes it if {@code null}.
+     */
+    void setRollbackListener(Runnable listener) {
+        lock.lock();
+        try {
+            rollbackListener = listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    <T> T read(Function<Session, T> action) {
+        lock.lock();
+        try {
+            return action.apply(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a write in the current batch, committed later.
+     */
+    void write(Consumer<Session> action) {
+        lock.lock();
+        try {
+            throwFailure();
+            if (pending == 0) {
+                begin();
+                oldestPending = System.nanoTime();
+            }
+            action.accept(session);
+            if (++pending >= batchSize) {
+                commit();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a write and commits it immediately, along with the current batch.
+     */
+    void writeNow(Consumer<Session> action) {
+        lock.lock();
+        try {
+            throwFailure();
+            begin();
+            action.accept(session);
+            pending++;
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() {
+        lock.lock();
+        try {
+            throwFailure();
+            if (pending > 0) {
+                commit();
+            } else {
+                notifyCommitListener();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushIfExpired() {
+        lock.lock();
+        try {
+            if (pending == 0) {
+                // Nothing left uncommitted
+                notifyCommitListener();
+            } else if (System.nanoTime() - oldestPending >= maxDelay) {
+                commit();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.catching(e);
+            failure = e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void begin() {
+        if (!session.getTransaction().isActive()) {
+            session.beginTransaction();
+        }
+    }
+
+    private void commit() {
+        Transaction tx = session.getTransaction();
+        try {
+            tx.commit();
+            LOGGER.debug("Committed {} writes", pending);
+            notifyCommitListener();
+        } catch (HibernateException e) {
+            LOGGER.error("Unable to commit {} writes", pending);
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            // Entities of the batch are not in the database, nor consistent with it anymore
+            session.clear();
+            if (rollbackListener != null) {
+                rollbackListener.run();
+            }
+            throw e;
+        } finally {
+            pending = 0;
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    private void notifyCommitListener() {
+        if (commitListener != null) {
+            commitListener.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+    }
+}
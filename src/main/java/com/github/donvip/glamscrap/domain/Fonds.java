@@ -16,12 +16,9 @@
  */
 package com.github.donvip.glamscrap.domain;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.hibernate.Session;
-
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -137,12 +134,6 @@ public class Fonds {
         this.template = template;
     }
 
-    public int getFetchedNotices(Session session) {
-        List<BigInteger> list = session.createNativeQuery(String.format(
-                "SELECT COUNT(*) FROM Notices WHERE Notices.fonds_cote = '%s'", cote), BigInteger.class).list();
-        return list.isEmpty() ? 0 : list.get(0).intValue();
-    }
-
     @Override
     public String toString() {
         return "Fonds [cote=" + cote + ", title=" + title + ']';
@@ -47,6 +47,8 @@ public class Notice {
     private String title;
     @Column(length = 6400)
     private String description;
+    /** Text to extract the date from, when it is not in the description or title */
+    private String dateText;
     private LocalDate date;
     private YearMonth yearMonth;
     private Year year;
@@ -76,6 +78,12 @@ public class Notice {
     private String filename;
     private URL url;
     private URL downloadUrl;
+    /** SHA-1 of the downloaded file, as hexadecimal */
+    @Column(length = 40)
+    private String sha1;
+    /** Size and last modification time (in milliseconds) of the downloaded file when it was hashed */
+    private Long fileSize;
+    private Long fileModified;
 
     public Notice() {
         // Default constructor
@@ -126,6 +134,14 @@ public class Notice {
         this.description = description;
     }
 
+    public String getDateText() {
+        return dateText;
+    }
+
+    public void setDateText(String dateText) {
+        this.dateText = dateText;
+    }
+
     public LocalDate getDate() {
         return date;
     }
@@ -310,6 +326,30 @@ public class Notice {
         this.downloadUrl = downloadUrl;
     }
 
+    public String getSha1() {
+        return sha1;
+    }
+
+    public void setSha1(String sha1) {
+        this.sha1 = sha1;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public Long getFileModified() {
+        return fileModified;
+    }
+
+    public void setFileModified(Long fileModified) {
+        this.fileModified = fileModified;
+    }
+
     @Override
     public String toString() {
         return "Notice [cote=" + cote + ", title=" + title + ']';
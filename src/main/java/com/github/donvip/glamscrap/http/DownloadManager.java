@@ -0,0 +1,184 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.OptionalLong;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Downloads files through an {@link HttpTransport}, with a bounded number of downloads at the same time. Files are
+ * written to a {@code .part} file moved into place once complete, with the expected length, so that an interrupted
+ * download never leaves a truncated file at its final path. Partial files are resumed with HTTP range requests.
+ * <p>
+ * The SHA-1 of files, used by Commons to identify them, is computed while they are written.
+ */
+public class DownloadManager {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (?:(\\d+)-\\d+|\\*)/(\\d+|\\*)");
+
+    /**
+     * Downloaded file, with its size and the SHA-1 of its content as hexadecimal.
+     */
+    public record Download(Path file, long size, String sha1) {
+    }
+
+    private final HttpTransport http;
+    private final Semaphore slots;
+
+    /**
+     * @param http transport used to download files
+     * @param parallelism maximum number of files downloaded at the same time
+     */
+    public DownloadManager(HttpTransport http, int parallelism) {
+        this.http = http;
+        this.slots = new Semaphore(parallelism);
+    }
+
+    /**
+     * Downloads a file to {@code target}, resuming a previous partial download if any. Blocks until a download slot
+     * is available.
+     *
+     * @throws IOException if the file cannot be downloaded, or is not complete. The partial file is kept to be
+     *         resumed later
+     */
+    public Download download(URI uri, Path target) throws IOException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+        try {
+            Path part = target.resolveSibling(target.getFileName() + ".part");
+            long offset = Files.exists(part) ? Files.size(part) : 0;
+            MessageDigest digest = sha1();
+            if (offset > 0) {
+                // Digest of the bytes already downloaded
+                try (InputStream in = new DigestInputStream(Files.newInputStream(part), digest)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            if (!fetch(uri, part, offset, digest) && offset > 0) {
+                // Partial file no longer matches the remote one, start again from scratch
+                LOGGER.warn("Unable to resume download of {}, restarting it", uri);
+                Files.delete(part);
+                fetch(uri, part, 0, digest);
+            }
+            long size = Files.size(part);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Download(target, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Fetches the bytes of the file from {@code offset} into {@code part}, updating {@code digest} with them. The
+     * digest is reset if the whole file is received.
+     *
+     * @return {@code false} if the requested range is not satisfiable
+     */
+    private boolean fetch(URI uri, Path part, long offset, MessageDigest digest) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).GET()
+                // Lengths and ranges apply to the file itself
+                .header("Accept-Encoding", "identity");
+        if (offset > 0) {
+            LOGGER.info("Resuming download of {} from byte {}", uri, offset);
+            builder.header("Range", "bytes=" + offset + '-');
+        }
+        HttpResponse<InputStream> response = http.send(builder.build(), BodyHandlers.ofInputStream());
+        HttpHeaders headers = response.headers();
+        long expected;
+        try (InputStream body = response.body()) {
+            switch (response.statusCode()) {
+            case 200:
+                // Whole file, either asked or because the server ignored the range
+                expected = headers.firstValueAsLong("Content-Length").orElse(-1);
+                digest.reset();
+                write(body, part, digest, StandardOpenOption.TRUNCATE_EXISTING);
+                break;
+            case 206:
+                Matcher m = CONTENT_RANGE.matcher(headers.firstValue("Content-Range").orElse(""));
+                if (!m.matches() || m.group(1) == null || Long.parseLong(m.group(1)) != offset) {
+                    throw new IOException("Unexpected Content-Range for " + uri + ": " + headers.firstValue("Content-Range"));
+                }
+                expected = "*".equals(m.group(2)) ? -1 : Long.parseLong(m.group(2));
+                write(body, part, digest, StandardOpenOption.APPEND);
+                break;
+            case 416:
+                // Nothing after offset: the partial file is complete if it has the length of the remote one
+                return totalLength(headers).orElse(-1) == offset;
+            default:
+                throw new IOException("HTTP error " + response.statusCode() + " downloading " + uri);
+            }
+        }
+        long size = Files.size(part);
+        if (expected >= 0 && size != expected) {
+            throw new IOException("Incomplete download of " + uri + ": got " + size + " bytes out of " + expected);
+        }
+        return true;
+    }
+
+    private static OptionalLong totalLength(HttpHeaders headers) {
+        Matcher m = CONTENT_RANGE.matcher(headers.firstValue("Content-Range").orElse(""));
+        return m.matches() && !"*".equals(m.group(2)) ? OptionalLong.of(Long.parseLong(m.group(2))) : OptionalLong.empty();
+    }
+
+    private static void write(InputStream body, Path part, MessageDigest digest, StandardOpenOption mode) throws IOException {
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(part, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, mode), digest)) {
+            body.transferTo(out);
+        }
+    }
+
+    public static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Mandatory algorithm of every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
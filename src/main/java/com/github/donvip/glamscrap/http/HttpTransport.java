@@ -0,0 +1,287 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.github.donvip.glamscrap.http.ResponseCache.Mode;
+
+/**
+ * Long-lived HTTP transport shared by all requests of a scrapper: connections are kept alive and reused, HTTP/2 is
+ * negotiated with servers offering it, and compressed responses are transparently decoded. Responses are looked up
+ * in and stored to an optional {@link ResponseCache}.
+ */
+public class HttpTransport implements AutoCloseable {
+
+    /** Number of times a request is retried when the server asks to, through a {@code Retry-After} header */
+    private static final int MAX_RETRIES = 3;
+
+    private static final String USER_AGENT = "GlamScrap/0.2 (https://github.com/don-vip/GlamScrap)";
+
+    private static final Pattern CHARSET = Pattern.compile("(?i)charset=\"?([^\\s;\"]+)");
+
+    public record Response(URI uri, int statusCode, HttpHeaders headers, byte[] body) {
+
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * Returns the charset declared in the {@code Content-Type} header, or {@code null}.
+         */
+        public Charset charset() {
+            return headers.firstValue("Content-Type").map(CHARSET::matcher).filter(Matcher::find).map(m -> {
+                try {
+                    return Charset.forName(m.group(1));
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    return null;
+                }
+            }).orElse(null);
+        }
+
+        public InputStream bodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+
+        public String bodyAsString() {
+            Charset charset = charset();
+            return new String(body, charset != null ? charset : StandardCharsets.UTF_8);
+        }
+    }
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final int maxRequestsPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final RequestScheduler scheduler;
+    private final ResponseCache cache;
+
+    public HttpTransport(Duration connectTimeout, Duration readTimeout, int maxRequestsPerHost,
+            RequestScheduler scheduler, ResponseCache cache) {
+        this.client = HttpClient.newBuilder()
+                .version(Version.HTTP_2)
+                .followRedirects(Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.readTimeout = readTimeout;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.scheduler = scheduler;
+        this.cache = cache;
+    }
+
+    public Response get(URI uri) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri).GET().build());
+    }
+
+    public Response send(HttpRequest request) throws IOException, InterruptedException {
+        if (cache == null || cache.getMode() == Mode.DISABLED) {
+            return sendToServer(prepare(request).build());
+        }
+        String key = ResponseCache.key(request.method(), request.uri(), body(request));
+        Response cached = cache.get(key);
+        if (cache.getMode() == Mode.CACHE_ONLY) {
+            if (cached == null) {
+                throw new IOException("Not in cache: " + request.method() + ' ' + request.uri());
+            }
+            return cached;
+        }
+        HttpRequest.Builder builder = prepare(request);
+        if (cached != null) {
+            cached.headers().firstValue("ETag").ifPresent(v -> builder.header("If-None-Match", v));
+            cached.headers().firstValue("Last-Modified").ifPresent(v -> builder.header("If-Modified-Since", v));
+        }
+        Response response = sendToServer(builder.build());
+        if (cached != null && response.statusCode() == 304) {
+            return cached;
+        } else if (response.isSuccessful()) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Sends a request without looking up the cache, the body of the response being processed by {@code handler}.
+     * Contrary to {@link #send(HttpRequest)}, responses are not decoded: callers wanting a given content coding have to
+     * ask for it through the {@code Accept-Encoding} header.
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler) throws IOException, InterruptedException {
+        return sendWithRetries(prepare(request).build(), handler);
+    }
+
+    private Response sendToServer(HttpRequest prepared) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = sendWithRetries(prepared, BodyHandlers.ofByteArray());
+        return new Response(response.uri(), response.statusCode(), response.headers(),
+                decode(response.headers(), response.body()));
+    }
+
+    private <T> HttpResponse<T> sendWithRetries(HttpRequest prepared, BodyHandler<T> handler) throws IOException, InterruptedException {
+        for (int attempt = 0;; attempt++) {
+            HttpResponse<T> response = sendOnce(prepared, handler);
+            if (attempt < MAX_RETRIES && (response.statusCode() == 429 || response.statusCode() == 503)
+                    && response.headers().firstValue("Retry-After").isPresent()) {
+                // The scheduler has suspended the host until the given time, acquire() will wait for it
+                if (response.body() instanceof Closeable body) {
+                    // Release the connection of a streamed body
+                    body.close();
+                }
+                continue;
+            }
+            return response;
+        }
+    }
+
+    private <T> HttpResponse<T> sendOnce(HttpRequest request, BodyHandler<T> handler) throws IOException, InterruptedException {
+        URI uri = request.uri();
+        Semaphore permits = acquireHostPermit(uri);
+        try {
+            scheduler.acquire(uri);
+            long start = System.nanoTime();
+            // Latency is measured up to the response headers, so that large bodies are not taken for congestion
+            long[] headersReceived = {0};
+            try {
+                HttpResponse<T> response = client.send(request, info -> {
+                    headersReceived[0] = System.nanoTime();
+                    return handler.apply(info);
+                });
+                scheduler.onResponse(uri, response.statusCode(), headersReceived[0] - start,
+                        response.headers().firstValue("Retry-After").orElse(null));
+                return response;
+            } catch (IOException e) {
+                scheduler.onFailure(uri, e);
+                throw e;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private HttpRequest.Builder prepare(HttpRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request, (n, v) -> true);
+        if (request.headers().firstValue("Accept-Encoding").isEmpty()) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        if (request.headers().firstValue("User-Agent").isEmpty()) {
+            builder.header("User-Agent", USER_AGENT);
+        }
+        if (request.timeout().isEmpty()) {
+            builder.timeout(readTimeout);
+        }
+        if ("http".equalsIgnoreCase(request.uri().getScheme())) {
+            // No HTTP/2 over cleartext: avoids h2c upgrade attempts old servers do not understand
+            builder.version(Version.HTTP_1_1);
+        }
+        return builder;
+    }
+
+    private static byte[] body(HttpRequest request) {
+        return request.bodyPublisher().map(publisher -> {
+            BodySubscriber<byte[]> subscriber = BodySubscribers.ofByteArray();
+            publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    subscriber.onNext(List.of(item));
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            });
+            return subscriber.getBody().toCompletableFuture().join();
+        }).orElseGet(() -> new byte[0]);
+    }
+
+    private static byte[] decode(HttpHeaders headers, byte[] body) throws IOException {
+        String encoding = headers.firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ENGLISH);
+        switch (encoding) {
+        case "gzip", "x-gzip":
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                return in.readAllBytes();
+            }
+        case "deflate":
+            // RFC 9110 mandates zlib format, but some servers send raw deflate data
+            boolean zlib = body.length > 1 && (body[0] & 0x0F) == 8 && ((body[0] & 0xFF) << 8 | body[1] & 0xFF) % 31 == 0;
+            Inflater inflater = new Inflater(!zlib);
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body), inflater)) {
+                return in.readAllBytes();
+            } finally {
+                inflater.end();
+            }
+        default:
+            return body;
+        }
+    }
+
+    private Semaphore acquireHostPermit(URI uri) throws InterruptedIOException {
+        Semaphore permits = hostPermits.computeIfAbsent(uri.getHost(), h -> new Semaphore(maxRequestsPerHost));
+        try {
+            permits.acquire();
+            return permits;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
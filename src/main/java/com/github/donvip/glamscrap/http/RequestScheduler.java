@@ -0,0 +1,256 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Politeness scheduler: paces requests with a token bucket per host, whose rate is tuned by AIMD (additive increase,
+ * multiplicative decrease) from observed latencies, server errors and timeouts. {@code Retry-After} headers suspend
+ * all requests to the host until the given time.
+ */
+public class RequestScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Smoothing factor of the latency moving average */
+    private static final double LATENCY_ALPHA = 0.125;
+    /** Smoothed latency above this multiple of the base latency is considered as congestion */
+    private static final double LATENCY_TOLERANCE = 3.0;
+    /** Number of recent latencies whose minimum is the base latency, so that an unusually fast response is forgotten */
+    private static final int BASE_LATENCY_WINDOW = 50;
+    /** Number of consecutive congested responses needed to decrease the rate */
+    private static final int CONGESTION_SAMPLES = 3;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double burst;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * @param initialRate initial number of requests per second allowed for each host
+     * @param minRate minimum number of requests per second, whatever the server behaviour
+     * @param maxRate maximum number of requests per second, whatever the server behaviour
+     * @param increase number of requests per second added after each successful request
+     * @param burst maximum number of requests that can be sent at once after an idle period
+     */
+    public RequestScheduler(double initialRate, double minRate, double maxRate, double increase, double burst) {
+        this.initialRate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increase = increase;
+        this.burst = burst;
+    }
+
+    private final class HostState {
+        // ReentrantLock rather than synchronized to avoid pinning virtual threads
+        private final Lock lock = new ReentrantLock();
+        private final String host;
+        private double rate = initialRate;
+        private double tokens = 1;
+        private long lastRefill = System.nanoTime();
+        private long pausedUntil = lastRefill;
+        private long lastDecrease = lastRefill - TimeUnit.HOURS.toNanos(1);
+        private double smoothedLatency = -1;
+        /** Last latencies, in a circular buffer */
+        private final long[] latencies = new long[BASE_LATENCY_WINDOW];
+        private int next;
+        private int samples;
+        private int congested;
+
+        HostState(String host) {
+            this.host = host;
+        }
+
+        long pauseRemaining() {
+            lock.lock();
+            try {
+                return pausedUntil - System.nanoTime();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reserves a token and returns the number of nanoseconds to wait before using it.
+         */
+        long reserve() {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+                lastRefill = now;
+                tokens -= 1;
+                return tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void success(long latency) {
+            lock.lock();
+            try {
+                latencies[next] = latency;
+                next = (next + 1) % latencies.length;
+                samples = Math.min(samples + 1, latencies.length);
+                smoothedLatency = smoothedLatency < 0 ? latency
+                        : (1 - LATENCY_ALPHA) * smoothedLatency + LATENCY_ALPHA * latency;
+                if (smoothedLatency <= LATENCY_TOLERANCE * baseLatency()) {
+                    congested = 0;
+                    rate = Math.min(maxRate, rate + increase);
+                } else if (++congested >= CONGESTION_SAMPLES) {
+                    congested = 0;
+                    decrease("latency");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the lowest of the recent latencies.
+         */
+        private long baseLatency() {
+            long base = Long.MAX_VALUE;
+            for (int i = 0; i < samples; i++) {
+                base = Math.min(base, latencies[i]);
+            }
+            return base;
+        }
+
+        double getRate() {
+            lock.lock();
+            try {
+                return rate;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void failure(String reason, Duration retryAfter) {
+            lock.lock();
+            try {
+                if (retryAfter != null) {
+                    long until = System.nanoTime() + retryAfter.toNanos();
+                    if (until - pausedUntil > 0) {
+                        pausedUntil = until;
+                    }
+                    // Do not carry tokens accumulated before the pause
+                    tokens = Math.min(tokens, 0);
+                }
+                decrease(reason);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void decrease(String reason) {
+            long now = System.nanoTime();
+            // Decrease at most once per smoothed round trip, concurrent requests report the same congestion
+            if (now - lastDecrease > Math.max(smoothedLatency, TimeUnit.MILLISECONDS.toNanos(100))) {
+                lastDecrease = now;
+                rate = Math.max(minRate, rate * DECREASE_FACTOR);
+                LOGGER.debug("Slowing down {} to {} requests/s ({})", host, rate, reason);
+            }
+        }
+    }
+
+    private HostState state(URI uri) {
+        return hosts.computeIfAbsent(uri.getHost(), HostState::new);
+    }
+
+    /**
+     * Returns the number of requests per second currently allowed for the host of the given URI.
+     */
+    double getRate(URI uri) {
+        return state(uri).getRate();
+    }
+
+    /**
+     * Blocks until a request to the host of the given URI is allowed.
+     */
+    public void acquire(URI uri) throws InterruptedException {
+        HostState state = state(uri);
+        long pause;
+        while ((pause = state.pauseRemaining()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(pause);
+        }
+        long wait = state.reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Reports the response to a request previously allowed by {@link #acquire}.
+     *
+     * @param latency time elapsed between sending the request and receiving the response, in nanoseconds
+     * @param retryAfter value of the {@code Retry-After} response header, or {@code null}
+     */
+    public void onResponse(URI uri, int statusCode, long latency, String retryAfter) {
+        HostState state = state(uri);
+        if (statusCode == 429 || statusCode >= 500) {
+            state.failure("HTTP " + statusCode, parseRetryAfter(retryAfter));
+        } else {
+            state.success(latency);
+        }
+    }
+
+    /**
+     * Reports a request which did not get any response (timeout, connection reset...).
+     */
+    public void onFailure(URI uri, Exception e) {
+        state(uri).failure(e.getClass().getSimpleName(), null);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header value, expressed either in seconds or as an HTTP date.
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration d = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return d.isNegative() ? Duration.ZERO : d;
+            } catch (DateTimeParseException ex) {
+                LOGGER.warn("Invalid Retry-After header: {}", value);
+                return null;
+            }
+        }
+    }
+}
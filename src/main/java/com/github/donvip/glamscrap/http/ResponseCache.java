@@ -0,0 +1,165 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap.http;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.github.donvip.glamscrap.http.HttpTransport.Response;
+
+/**
+ * Persistent, content-addressed cache of HTTP responses. Entries are keyed by method, URL and request body, and
+ * stored compressed on disk along with their validators ({@code ETag}, {@code Last-Modified}).
+ */
+public class ResponseCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int FORMAT_VERSION = 1;
+
+    /** Response headers kept in cache */
+    private static final List<String> CACHED_HEADERS = List.of("content-type", "etag", "last-modified");
+
+    public enum Mode {
+        /** Cache is neither read nor written */
+        DISABLED,
+        /** Cached responses are revalidated with the server through conditional requests */
+        REVALIDATE,
+        /** Cached responses are used without contacting the server, missing ones are errors */
+        CACHE_ONLY;
+
+        public static Mode of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH).replace('-', '_'));
+        }
+    }
+
+    private final Path dir;
+    private final Mode mode;
+
+    public ResponseCache(Path dir, Mode mode) {
+        this.dir = dir;
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public static String key(String method, URI uri, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(method.getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ' ');
+            digest.update(uri.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path path(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".gz");
+    }
+
+    /**
+     * Returns the cached response for the given key, or {@code null}.
+     */
+    public Response get(String key) {
+        if (mode == Mode.DISABLED) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(path(key))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            URI uri = URI.create(in.readUTF());
+            int statusCode = in.readInt();
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = in.readInt(); i > 0; i--) {
+                headers.put(in.readUTF(), List.of(in.readUTF()));
+            }
+            byte[] body = in.readNBytes(in.readInt());
+            return new Response(uri, statusCode, HttpHeaders.of(headers, (k, v) -> true), body);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Ignoring unreadable cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a response. Written to a temporary file first, so that readers never see a partial entry.
+     */
+    public void put(String key, Response response) {
+        if (mode == Mode.DISABLED) {
+            return;
+        }
+        Path path = path(key);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+            try {
+                try (OutputStream os = Files.newOutputStream(tmp);
+                        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(os))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(response.uri().toString());
+                    out.writeInt(response.statusCode());
+                    Map<String, String> headers = new TreeMap<>();
+                    for (String name : CACHED_HEADERS) {
+                        response.headers().firstValue(name).ifPresent(v -> headers.put(name, v));
+                    }
+                    out.writeInt(headers.size());
+                    for (Map.Entry<String, String> e : headers.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                    out.writeInt(response.body().length);
+                    out.write(response.body());
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to cache response for {}: {}", response.uri(), e.getMessage());
+        }
+    }
+}
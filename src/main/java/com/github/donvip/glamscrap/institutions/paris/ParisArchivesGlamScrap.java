@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import org.apache.logging.log4j.LogManager;
@@ -83,11 +84,21 @@ public class ParisArchivesGlamScrap extends GlamScrap {
         return List.of(searchFonds("PH"));
     }
 
+    @Override
+    protected String getNoticeCote(String expectedNoticeCote) {
+        return expectedNoticeCote.split(";")[0];
+    }
+
+    @Override
+    protected boolean hasDateText() {
+        return true;
+    }
+
     @Override
     protected Notice searchNotice(Fonds f, int i, int j, boolean fetch) {
-        String[] tab = f.getExpectedNoticeCotes().get(i - 1).split(";");
+        String[] tab = f.getExpectedNoticeCotes().get(getNoticeOrdinal(i)).split(";");
         String cote = tab[0];
-        Notice n = session.get(Notice.class, cote);
+        Notice n = findNotice(f, cote);
         if (n == null && fetch) {
             try {
                 String path = String.format("%s/f/", tab[1]);
@@ -96,14 +107,9 @@ public class ParisArchivesGlamScrap extends GlamScrap {
                     n = ParisParser.parseNotice(desc, cote);
                     if (n != null) {
                         n.setUrl(new URL(getBaseUrl() + path));
-                        session.beginTransaction();
-                        f.getNotices().add(n);
-                        n.setFonds(f);
-                        session.persist(n);
-                        session.persist(f);
-                        session.getTransaction().commit();
+                        persistNotice(f, n);
                     } else {
-                        missedNotices.add(cote);
+                        addMissedNotice(cote);
                     }
                 } else {
                     LOGGER.warn("No notice found for: {}", cote);
@@ -162,12 +168,12 @@ public class ParisArchivesGlamScrap extends GlamScrap {
         Document doc = fetch("tableau/?");
         enrichNotices(f, doc, 16, (n, a) -> {
             n.setAuthors(List.of(a));
-            persist(n);
+            persist(f, n);
         });
         enrichNotices(f, doc, 18, (n, a) -> {
             String obs = n.getObservation();
             n.setObservation((obs == null ? "" : obs + ';') + "Ouvrage=" + a);
-            persist(n);
+            persist(f, n);
         });
     }
 
@@ -177,9 +183,10 @@ public class ParisArchivesGlamScrap extends GlamScrap {
     }
 
     private void enrichNotices(Fonds f, Document doc, int crit, BiConsumer<Notice, String> filler) throws IOException {
+        Map<String, Notice> notices = getNotices(f).stream().collect(toMap(Notice::getCote, n -> n));
         for (Entry<Integer, String> e : extractMap(doc, crit).entrySet()) {
             BiConsumer<Document, String> parser = (d, v) -> extractCotes(d).stream().map(s -> s.split(";")[0])
-                    .map(cote -> f.getNotices().stream().filter(n -> n.getCote().equals(cote)).findFirst()
+                    .map(cote -> Optional.ofNullable(notices.get(cote))
                             .orElseThrow(() -> new IllegalStateException("No notice found for cote " + cote)))
                     .forEach(n -> filler.accept(n, v));
             Document results = fetch(String.format("tableau/?&crit1=%d&v_%d_1=%s&v_%d_2=%d", crit, crit, e.getValue(),
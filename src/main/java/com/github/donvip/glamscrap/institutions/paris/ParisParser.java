@@ -23,7 +23,7 @@ class ParisParser extends Parser {
             n.setFilename(parseTableRow(div, 2) + ".jpg"); // Nom de l'image
             n.setClassification(parseTableRow(div, 3)); // Collection
             n.setDescription(parseTableRow(div, 6));
-            extractDate(parseTableRow(div, 7), n);
+            n.setDateText(parseTableRow(div, 7)); // Date is extracted by the "dates" command
             StringBuilder sb = new StringBuilder();
             String arrondissement = parseTableRow(div, 8);
             if (!arrondissement.isEmpty()) {
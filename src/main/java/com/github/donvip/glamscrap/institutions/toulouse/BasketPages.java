@@ -0,0 +1,104 @@
+package com.github.donvip.glamscrap.institutions.toulouse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+/**
+ * Pages of medias of a basket, in order. The pages up to the total announced by the first one are fetched ahead,
+ * then pages are fetched one after the other while they are full. Reading stops at the first page which is not full,
+ * pending pages being cancelled, so that a wrong total only changes the number of requests, not the medias read.
+ */
+final class BasketPages implements Iterator<GwtResponse>, AutoCloseable {
+
+    private final int pageSize;
+    private final IntFunction<GwtResponse> fetcher;
+    private final Deque<Future<GwtResponse>> ahead = new ArrayDeque<>();
+    /** Index of the first media of the next page not fetched ahead */
+    private int index;
+    private GwtResponse next;
+    private boolean last;
+
+    /**
+     * @param first first page, already fetched
+     * @param total number of medias announced by the first page, or {@code null}
+     * @param fetcher fetches the page starting at the given media index
+     */
+    BasketPages(GwtResponse first, Integer total, int pageSize, IntFunction<GwtResponse> fetcher, ExecutorService executor) {
+        this.pageSize = pageSize;
+        this.fetcher = fetcher;
+        this.next = first;
+        for (index = pageSize; total != null && index < total; index += pageSize) {
+            int i = index;
+            ahead.add(executor.submit(() -> fetcher.apply(i)));
+        }
+    }
+
+    Stream<GwtResponse> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !last) {
+            if (!ahead.isEmpty()) {
+                next = join(ahead.poll());
+            } else {
+                next = fetcher.apply(index);
+                index += pageSize;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public GwtResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GwtResponse page = next;
+        next = null;
+        if (ToulousePhotosParser.countMedias(page) < pageSize) {
+            last = true;
+            close();
+        }
+        return page;
+    }
+
+    /**
+     * Cancels the pages fetched ahead and not read yet.
+     */
+    @Override
+    public void close() {
+        ahead.forEach(f -> f.cancel(true));
+        ahead.clear();
+    }
+
+    private static GwtResponse join(Future<GwtResponse> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException(e.getMessage()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+}
@@ -92,29 +92,29 @@ public class ToulouseArchivesGlamScrap extends GlamScrap {
         }
     }
 
+    @Override
+    protected int getNoticeOrdinal(int i) {
+        return i;
+    }
+
     @Override
     protected Notice searchNotice(Fonds f, int i, int j, boolean fetch) {
         // Check to be sure, we don't have it in database
-        StringBuilder sb = new StringBuilder(f.getExpectedNoticeCotes().get(i));
+        StringBuilder sb = new StringBuilder(f.getExpectedNoticeCotes().get(getNoticeOrdinal(i)));
         if (j > -1) {
             sb.append('/').append(j);
         }
         String cote = sb.toString();
-        Notice n = session.get(Notice.class, cote);
+        Notice n = findNotice(f, cote);
         if (n == null && fetch) {
             try {
                 Document desc = fetch(String.format("Web_VoirLaNotice/34_01/%s/ILUMP21411", cote.replace("/", "xzx")));
                 if (desc != null) {
                     n = ToulouseArchivesParser.parseNotice(desc, cote);
                     if (n != null) {
-                        session.beginTransaction();
-                        f.getNotices().add(n);
-                        n.setFonds(f);
-                        session.persist(n);
-                        session.persist(f);
-                        session.getTransaction().commit();
+                        persistNotice(f, n);
                     } else if (!cote.contains("/")) {
-                        missedNotices.add(cote);
+                        addMissedNotice(cote);
                     }
                 } else {
                     LOGGER.warn("No notice found for: {}", cote);
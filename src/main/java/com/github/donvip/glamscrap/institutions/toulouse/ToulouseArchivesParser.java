@@ -85,10 +85,7 @@ class ToulouseArchivesParser extends Parser {
             }
             // 2. Description
             n.setDescription(firstRow.select("p[align=justify] > span").first().text().trim());
-            // Extract date from description (or title) thanks to HeidelTime
-            if (extractDate(n.getDescription(), n) == null) {
-                extractDate(n.getTitle(), n);
-            }
+            // Date is extracted from description (or title) by the "dates" command
             Element span = tab.select("tbody > tr[align=LEFT] > td.tab_premierecondition > span.loupe").first();
             // 3. Author(s)
             extractLinks(span, "Auteur(s)", t -> n.getAuthors().add(t
@@ -1,11 +1,17 @@
 package com.github.donvip.glamscrap.institutions.toulouse;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.github.donvip.glamscrap.Gwt.GwtResponse;
+import com.github.donvip.glamscrap.GwtObjectGraph;
+import com.github.donvip.glamscrap.GwtObjectGraph.FieldType;
+import com.github.donvip.glamscrap.GwtObjectGraph.GwtObject;
 import com.github.donvip.glamscrap.Parser;
 import com.github.donvip.glamscrap.domain.Fonds;
 
@@ -13,23 +19,77 @@ public class ToulousePhotosParser extends Parser {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    public static Fonds parseFonds(GwtResponse basket, List<GwtResponse> medias, String cote) {
+    static final String ARRAY_LIST = "java.util.ArrayList/4159755760";
+
+    /** Result of ShareGetBasketMediasListAction, named after the action as usual with gwtp */
+    static final String MEDIAS_LIST_RESULT = "com.keepeek.kpk360.shared.dispatch.share.basket.ShareGetBasketMediasListResult";
+
+    /**
+     * Fields of the result in serialization order (alphabetical): the medias of the page, then the total number of
+     * medias of the basket. Medias are only counted, their schema is not needed.
+     */
+    private static final Map<String, List<FieldType>> SCHEMAS = Map.of(
+            MEDIAS_LIST_RESULT, List.of(FieldType.OBJECT, FieldType.INT));
+
+    /**
+     * Parses a basket and the pages of its medias, consumed as they come.
+     *
+     * @param total number of medias announced by the first page, or {@code null}
+     */
+    public static Fonds parseFonds(GwtResponse basket, Integer total, Stream<GwtResponse> medias, String cote) {
         if (basket != null && medias != null) {
             final Fonds f = new Fonds(cote);
             // 0. Search for title
             //int idx = basket.indexOf("\"com.keepeek.kpk360.shared.transport.UserLightTransport/");
             //idx = basket.lastIndexOf("\"", idx - 3);
             //f.setTitle(basket.substring(idx + 1, basket.indexOf("\"", idx + 1)));
-            // 1. Search for expected number of notices (information always displayed)
-            try {
-                f.setExpectedNotices(Integer.valueOf("617")); // TODO
-            } catch (RuntimeException e) {
-                LOGGER.warn("Unable to fetch number of notices for {}", cote);
+            // 1. Count medias of all pages
+            int count = 0;
+            for (Iterator<GwtResponse> it = medias.iterator(); it.hasNext();) {
+                GwtResponse page = it.next();
+                LOGGER.debug(page);
+                count += countMedias(page);
             }
+            if (total != null && total != count) {
+                LOGGER.warn("{} announces {} medias, got {}", cote, total, count);
+            }
+            f.setExpectedNotices(count);
             return f;
         } else {
             LOGGER.warn("Couldn't parse fonds for: {}", cote);
             return null;
         }
     }
+
+    /**
+     * Returns the number of medias in a page.
+     *
+     * @throws IllegalStateException if the page is not a result of ShareGetBasketMediasListAction
+     */
+    static int countMedias(GwtResponse page) {
+        Object root = new GwtObjectGraph(page, SCHEMAS).root();
+        if (root instanceof GwtObject result && MEDIAS_LIST_RESULT.equals(result.getType())
+                && result.getObject(0) instanceof GwtObject medias && "java.util.ArrayList".equals(medias.getType())) {
+            return medias.size();
+        }
+        throw new IllegalStateException("Not a page of medias: " + root);
+    }
+
+    /**
+     * Returns the total number of medias of the basket announced by a page, or {@code null} if not plausible. The
+     * result spanning the whole response, its last field is the last value, read without walking over the medias.
+     * As the schema of the result has not been checked against a recorded response, the value is only believed when
+     * consistent with the first page: at least its number of medias, equal to it if the page is not full, and at most
+     * {@code maxMedias}.
+     *
+     * @throws IllegalStateException if the page is not a result of ShareGetBasketMediasListAction
+     */
+    static Integer parseTotal(GwtResponse page, int pageSize, int maxMedias) {
+        int count = countMedias(page);
+        if (page.values().get(page.values().size() - 1) instanceof Integer total
+                && total >= count && total <= maxMedias && (count >= pageSize || total == count)) {
+            return total;
+        }
+        return null;
+    }
 }
@@ -1,13 +1,14 @@
 package com.github.donvip.glamscrap.institutions.toulouse;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.http.HttpRequest;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import javax.script.ScriptException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,6 +17,7 @@ import com.github.donvip.glamscrap.GlamScrap;
 import com.github.donvip.glamscrap.Gwt;
 import com.github.donvip.glamscrap.Gwt.GwtResponse;
 import com.github.donvip.glamscrap.Gwt.TypedValue;
+import com.github.donvip.glamscrap.GwtRequestTemplate;
 import com.github.donvip.glamscrap.domain.Fonds;
 import com.github.donvip.glamscrap.domain.Notice;
 import com.github.donvip.glamscrap.wikidata.Author;
@@ -27,6 +29,13 @@ public class ToulousePhotothequeGlamScrap extends GlamScrap {
 
     private static final String BASE_URL = "https://phototheque.toulouse.fr/";
 
+    /** Number of medias per page of a basket */
+    private static final int PAGE_SIZE = 60;
+    /** Maximum number of pages of a basket fetched at the same time */
+    private static final int PAGE_CONCURRENCY = Integer.getInteger("glamscrap.keepeek.pageConcurrency", 4);
+    /** Largest total number of medias of a basket believed, pages are fetched one after the other beyond */
+    private static final int MAX_MEDIAS = Integer.getInteger("glamscrap.keepeek.maxMedias", 100_000);
+
     private static final Map<String, Album> ALBUMS = new HashMap<>();
     static {
         ALBUMS.put("bBxZc08Cb", new Album(1, false));
@@ -77,22 +86,42 @@ public class ToulousePhotothequeGlamScrap extends GlamScrap {
         try {
             GwtResponse basket = Gwt.decodeResponse(fetchPost(shareGetBasketAction(cote)));
             LOGGER.info(basket);
-            List<GwtResponse> medias = new ArrayList<>();
-            boolean finished = false;
-            int index = 0;
-            while (!finished) {
-                GwtResponse media = Gwt.decodeResponse(fetchPost(shareGetBasketMediasListAction(cote, index)));
-                LOGGER.info(media);
-                medias.add(media);
-                index += 60; // FIXME
-                finished = index > 617;//FIXME
+            GwtRequestTemplate mediasList = shareGetBasketMediasListTemplate(cote);
+            GwtResponse first = fetchMedias(mediasList, 0);
+            Integer total;
+            try {
+                total = ToulousePhotosParser.parseTotal(first, PAGE_SIZE, MAX_MEDIAS);
+            } catch (IllegalStateException e) {
+                // Would otherwise be a fonds without any expected notice
+                LOGGER.error("Unable to parse first page of medias of {}: {}", cote, e.getMessage());
+                throw new IOException(e);
+            }
+            if (total == null) {
+                LOGGER.warn("Unable to find number of medias of {}, fetching pages until the last one", cote);
+            }
+            // Pages are fetched ahead and parsed in order as they arrive
+            try (ExecutorService executor = Executors.newFixedThreadPool(PAGE_CONCURRENCY, Thread.ofVirtual().factory());
+                    BasketPages pages = new BasketPages(first, total, PAGE_SIZE, i -> fetchMedias(mediasList, i), executor)) {
+                return ToulousePhotosParser.parseFonds(basket, total, pages.stream(), cote);
             }
-            return ToulousePhotosParser.parseFonds(basket, medias, cote);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException(e);
-        } catch (ScriptException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             throw new IOException(e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private GwtResponse fetchMedias(GwtRequestTemplate mediasList, int index) {
+        try {
+            return Gwt.decodeResponse(fetchPost(mediasList.request(index)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException(e.getMessage()));
         }
     }
 
@@ -103,9 +132,17 @@ public class ToulousePhotothequeGlamScrap extends GlamScrap {
     }
 
     protected static HttpRequest shareGetBasketMediasListAction(String sharedBasketIdentifier, int index) {
-        return keepeekAction("ShareGetBasketMediasListAction", "com.keepeek.kpk360.shared.dispatch.share.basket.ShareGetBasketMediasListAction/840037237", List.of(
+        return shareGetBasketMediasListTemplate(sharedBasketIdentifier).request(index);
+    }
+
+    /**
+     * Returns the template of {@link #shareGetBasketMediasListAction}, whose only parameter is the index of the first
+     * media of the page.
+     */
+    protected static GwtRequestTemplate shareGetBasketMediasListTemplate(String sharedBasketIdentifier) {
+        return keepeekTemplate("ShareGetBasketMediasListAction", "com.keepeek.kpk360.shared.dispatch.share.basket.ShareGetBasketMediasListAction/840037237", List.of(
                 new TypedValue(null, Gwt.INTEGER, null, -1, List.of()),
-                new TypedValue(null, Gwt.INTEGER, null, index, List.of()),
+                TypedValue.parameter(Gwt.INTEGER),
                 new TypedValue(null, Gwt.BOOLEAN, null, 0, List.of()),
                 new TypedValue(Gwt.STRING, null, "DESC", -1, List.of()),
                 new TypedValue(Gwt.STRING, null, "", -1, List.of()),
@@ -114,7 +151,11 @@ public class ToulousePhotothequeGlamScrap extends GlamScrap {
     }
 
     protected static HttpRequest keepeekAction(String urlAction, String actionQualifiedClass, List<TypedValue> arguments) {
-        return Gwt.request(BASE_URL + "dispatch/" + urlAction,
+        return keepeekTemplate(urlAction, actionQualifiedClass, arguments).request();
+    }
+
+    protected static GwtRequestTemplate keepeekTemplate(String urlAction, String actionQualifiedClass, List<TypedValue> arguments) {
+        return GwtRequestTemplate.compile(BASE_URL + "dispatch/" + urlAction,
                 "https://phototheque.toulouse.fr/keepeek360/", "2ED7D09E9D2EBA03EA03E51C1582B244", "AE4175F0BB42AE91733577263A0417ED",
                 "com.gwtplatform.dispatch.rpc.shared.DispatchService", "execute", List.of(
                         new TypedValue(Gwt.STRING, null, null, -1, List.of()),
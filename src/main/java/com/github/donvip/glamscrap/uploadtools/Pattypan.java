@@ -11,7 +11,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -21,7 +20,6 @@ import com.github.donvip.glamscrap.GlamScrap;
 import com.github.donvip.glamscrap.domain.Fonds;
 import com.github.donvip.glamscrap.domain.Notice;
 import com.github.donvip.glamscrap.wikidata.Author;
-import com.github.donvip.glamscrap.wikidata.WikidataUtils;
 
 public class Pattypan extends UploadTool {
 
@@ -48,28 +46,24 @@ public class Pattypan extends UploadTool {
                 header.createCell(j).setCellValue(columns.get(j));
             }
             for (Notice n : f.getNotices()) {
-                List<String> authors = n.getAuthors();
                 // Upload only files where all author(s) are known and in public domain
-                if (CollectionUtils.isNotEmpty(authors)) {
-                    List<Author> wikiAuthors = authors.stream()
-                        .map(a -> WikidataUtils.retrieveAuthorInfo(a, cityScrap.getPredefinedAuthors())).toList();
-                    if (wikiAuthors.stream().allMatch(a -> a != null && Boolean.TRUE.equals(a.isPublicDomain()))) {
-                        Row row = data.createRow(i++);
-                        createCell(row, columns, "path", () -> downloadDir.resolve(n.getFilename()).toAbsolutePath());
-                        createCell(row, columns, "name", () -> String.format("%s (%s)", n.getTitle().replace("[", "").replace("]", ""), n.getCote()));
-                        createCell(row, columns, "photographer", () -> wikiAuthors.stream().map(a -> "{{"
-                                + (a.getCommonsCreator() != null ? ("Creator:" + a.getCommonsCreator()) : ("Institution:" + a.getCommonsInstitution()))
-                                + "}}").collect(joining("\n")));
-                        createCell(row, columns, "title", () -> String.format("{{fr|''%s.''}}", n.getTitle()));
-                        createCell(row, columns, "description", () -> n.getDescription().isBlank() ? null : String.format("{{fr|''%s''}}", n.getDescription()));
-                        createCell(row, columns, "date", n::getDate);
-                        createCell(row, columns, "institution", () -> String.format("{{Institution:%s}}", cityScrap.getInstitution()));
-                        createCell(row, columns, "accession_number", n::getCote);
-                        createCell(row, columns, "source", n::getUrl);
-                        createCell(row, columns, "permission", () -> "{{Template:PD-France}}");
-                        createCell(row, columns, "other_fields", () -> cityScrap.getOtherFields(n));
-                        createCell(row, columns, "categories", () -> cityScrap.getCategories(n).stream().filter(Objects::nonNull).collect(joining(";")));
-                    }
+                List<Author> wikiAuthors = getPublicDomainAuthors(n, cityScrap);
+                if (wikiAuthors != null) {
+                    Row row = data.createRow(i++);
+                    createCell(row, columns, "path", () -> downloadDir.resolve(n.getFilename()).toAbsolutePath());
+                    createCell(row, columns, "name", () -> String.format("%s (%s)", n.getTitle().replace("[", "").replace("]", ""), n.getCote()));
+                    createCell(row, columns, "photographer", () -> wikiAuthors.stream().map(a -> "{{"
+                            + (a.getCommonsCreator() != null ? ("Creator:" + a.getCommonsCreator()) : ("Institution:" + a.getCommonsInstitution()))
+                            + "}}").collect(joining("\n")));
+                    createCell(row, columns, "title", () -> String.format("{{fr|''%s.''}}", n.getTitle()));
+                    createCell(row, columns, "description", () -> n.getDescription().isBlank() ? null : String.format("{{fr|''%s''}}", n.getDescription()));
+                    createCell(row, columns, "date", n::getDate);
+                    createCell(row, columns, "institution", () -> String.format("{{Institution:%s}}", cityScrap.getInstitution()));
+                    createCell(row, columns, "accession_number", n::getCote);
+                    createCell(row, columns, "source", n::getUrl);
+                    createCell(row, columns, "permission", () -> "{{Template:PD-France}}");
+                    createCell(row, columns, "other_fields", () -> cityScrap.getOtherFields(n));
+                    createCell(row, columns, "categories", () -> cityScrap.getCategories(n).stream().filter(Objects::nonNull).collect(joining(";")));
                 }
             }
             Sheet template = wb.createSheet("Template");
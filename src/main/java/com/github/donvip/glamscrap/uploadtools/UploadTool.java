@@ -6,17 +6,64 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import com.github.donvip.glamscrap.GlamScrap;
 import com.github.donvip.glamscrap.domain.Fonds;
+import com.github.donvip.glamscrap.domain.Notice;
+import com.github.donvip.glamscrap.wikidata.Author;
+import com.github.donvip.glamscrap.wikidata.WikidataUtils;
 
 public abstract class UploadTool {
 
-    private static final Set<String> LOGGED_MESSAGES = new HashSet<>();
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final Set<String> LOGGED_MESSAGES = ConcurrentHashMap.newKeySet();
+
+    public enum Eligibility {
+        /** All authors are known and in public domain */
+        ELIGIBLE,
+        /** No author, or an author not known or not in public domain */
+        INELIGIBLE,
+        /** Authors could not be looked up */
+        UNRESOLVED
+    }
+
+    /**
+     * Returns the Wikidata authors of a notice if they are all known and in public domain, {@code null} otherwise.
+     * Only such notices are uploaded.
+     */
+    protected static List<Author> getPublicDomainAuthors(Notice n, GlamScrap cityScrap) {
+        List<String> authors = n.getAuthors();
+        if (CollectionUtils.isNotEmpty(authors)) {
+            List<Author> wikiAuthors = authors.stream()
+                    .map(a -> WikidataUtils.retrieveAuthorInfo(a, cityScrap.getPredefinedAuthors())).toList();
+            if (wikiAuthors.stream().allMatch(a -> a != null && Boolean.TRUE.equals(a.isPublicDomain()))) {
+                return wikiAuthors;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether a notice will be uploaded.
+     */
+    public static Eligibility getEligibility(Notice n, GlamScrap cityScrap) {
+        try {
+            return getPublicDomainAuthors(n, cityScrap) != null ? Eligibility.ELIGIBLE : Eligibility.INELIGIBLE;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to look up authors of {}: {}", n.getCote(), e.getMessage());
+            return Eligibility.UNRESOLVED;
+        }
+    }
 
     public void writeUploadFile(Fonds f, GlamScrap cityScrap) throws IOException {
         Path dir = Files.createDirectories(cityScrap.getDownloadDir(f).resolve("upload"));
@@ -4,9 +4,9 @@ import static java.util.stream.Collectors.joining;
 
 import java.time.ZonedDateTime;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,12 +23,12 @@ public final class WikidataUtils {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private static final Map<String, Author> AUTHORS = new HashMap<>();
+    private static final Map<String, Author> AUTHORS = new ConcurrentHashMap<>();
 
     private static final Map<String, String> OCCUPATION_QIDS = Map.of("photographe", "Q33231", "photographes", "Q33231",
             "studio photo.", "Q672070", "studio photographique", "Q672070", "agence photographique", "Q860572");
 
-    private static final Map<String, List<String>> NOM_PRENOM_QIDS = new HashMap<>();
+    private static final Map<String, List<String>> NOM_PRENOM_QIDS = new ConcurrentHashMap<>();
 
     private static final Pattern PATTERN_NOM_PRENOM_OCCUPATION = Pattern
             .compile("([çéèü\\p{Alpha}]+), +([çéèü\\p{Alpha}\\.]+) +\\((.*)\\)");
@@ -42,56 +42,65 @@ public final class WikidataUtils {
     }
 
     public static Author retrieveAuthorInfo(String author, Map<String, Author> predefinedAuthors) {
-        return AUTHORS.computeIfAbsent(author, k -> {
-            final Author a = initAuthor(author, predefinedAuthors);
-            final String occupationQid = OCCUPATION_QIDS.get(a.getOccupation());
-            if (occupationQid != null) {
-                try (RepositoryConnection sparqlConnection = sparqlRepository.getConnection()) {
-                    String query = switch (occupationQid) {
-                    case "Q33231": // photographe
-                        yield getHumanQuery(sparqlConnection, a, occupationQid);
-                    case "Q672070", "Q860572": // studio/agence photographique
-                        yield getInstitutionQuery(a, occupationQid);
-                    default:
-                        throw new IllegalArgumentException("Unexpected value: " + occupationQid);
-                    };
-                    if (query != null) {
-                        List<BindingSet> results = sparqlConnection.prepareTupleQuery(QueryLanguage.SPARQL, query)
-                                .evaluate().stream().toList();
-                        if (results.size() != 1) {
-                            LOGGER.info("Not exactly 1 author when looking for {} in Wikidata: {}", author, results);
-                        } else {
-                            BindingSet result = results.get(0);
-                            Binding item = result.getBinding("item");
-                            Binding label = result.getBinding("label");
-                            Binding birth = result.getBinding("birth");
-                            Binding death = result.getBinding("death");
-                            Binding creator = result.getBinding("creator");
-                            Binding institution = result.getBinding("institution");
-                            a.setQid(item.getValue().stringValue());
-                            if (birth != null) {
-                                a.setBirthYear(ZonedDateTime.parse(birth.getValue().stringValue()).getYear());
-                            }
-                            if (death != null) {
-                                a.setDeathYear(ZonedDateTime.parse(death.getValue().stringValue()).getYear());
-                                boolean pd = a.isPublicDomain();
-                                LOGGER.info("{} ({}) in public domain: {} (died in {})", item, label, pd, a.getDeathYear());
-                                if (creator != null) {
-                                    a.setCommonsCreator(creator.getValue().stringValue());
-                                } else if (institution != null) {
-                                    a.setCommonsInstitution(institution.getValue().stringValue());
-                                } else if (pd) {
-                                    LOGGER.error("No Commons Creator nor Institution for {} ({})", item, label);
-                                }
-                            } else {
-                                LOGGER.info("No date of death for {} ({})", item, label);
+        // Looked up outside of the map, whose bins must not stay locked during network calls
+        Author cached = AUTHORS.get(author);
+        if (cached != null) {
+            return cached;
+        }
+        Author a = lookupAuthor(author, predefinedAuthors);
+        Author previous = AUTHORS.putIfAbsent(author, a);
+        return previous != null ? previous : a;
+    }
+
+    private static Author lookupAuthor(String author, Map<String, Author> predefinedAuthors) {
+        final Author a = initAuthor(author, predefinedAuthors);
+        final String occupationQid = OCCUPATION_QIDS.get(a.getOccupation());
+        if (occupationQid != null) {
+            try (RepositoryConnection sparqlConnection = sparqlRepository.getConnection()) {
+                String query = switch (occupationQid) {
+                case "Q33231": // photographe
+                    yield getHumanQuery(sparqlConnection, a, occupationQid);
+                case "Q672070", "Q860572": // studio/agence photographique
+                    yield getInstitutionQuery(a, occupationQid);
+                default:
+                    throw new IllegalArgumentException("Unexpected value: " + occupationQid);
+                };
+                if (query != null) {
+                    List<BindingSet> results = sparqlConnection.prepareTupleQuery(QueryLanguage.SPARQL, query)
+                            .evaluate().stream().toList();
+                    if (results.size() != 1) {
+                        LOGGER.info("Not exactly 1 author when looking for {} in Wikidata: {}", author, results);
+                    } else {
+                        BindingSet result = results.get(0);
+                        Binding item = result.getBinding("item");
+                        Binding label = result.getBinding("label");
+                        Binding birth = result.getBinding("birth");
+                        Binding death = result.getBinding("death");
+                        Binding creator = result.getBinding("creator");
+                        Binding institution = result.getBinding("institution");
+                        a.setQid(item.getValue().stringValue());
+                        if (birth != null) {
+                            a.setBirthYear(ZonedDateTime.parse(birth.getValue().stringValue()).getYear());
+                        }
+                        if (death != null) {
+                            a.setDeathYear(ZonedDateTime.parse(death.getValue().stringValue()).getYear());
+                            boolean pd = a.isPublicDomain();
+                            LOGGER.info("{} ({}) in public domain: {} (died in {})", item, label, pd, a.getDeathYear());
+                            if (creator != null) {
+                                a.setCommonsCreator(creator.getValue().stringValue());
+                            } else if (institution != null) {
+                                a.setCommonsInstitution(institution.getValue().stringValue());
+                            } else if (pd) {
+                                LOGGER.error("No Commons Creator nor Institution for {} ({})", item, label);
                             }
+                        } else {
+                            LOGGER.info("No date of death for {} ({})", item, label);
                         }
                     }
                 }
             }
-            return a;
-        });
+        }
+        return a;
     }
 
     private static Author initAuthor(String author, Map<String, Author> predefinedAuthors) {
@@ -172,24 +181,34 @@ public final class WikidataUtils {
 
     protected static List<String> findInWikidata(RepositoryConnection sparqlConnection, List<String> naturesList, String textualValue) {
         String natures = naturesList.stream().map(q -> "wd:" + q).collect(joining(" "));
-        return NOM_PRENOM_QIDS.computeIfAbsent(natures + "=" + textualValue, k -> {
-            TupleQuery tupleQuery = sparqlConnection.prepareTupleQuery(QueryLanguage.SPARQL, """
-                    SELECT DISTINCT ?item
-                    WHERE
-                    {
-                       VALUES ?natures { $natures }
-                       VALUES ?noms { "$textualValue"@mul "$textualValue"@fr "$textualValue"@en "$textualValue"@es "$textualValue"@de "$textualValue"@it "$textualValue"@co }
-                       ?item wdt:P31 ?natures;
-                       wdt:P1705 ?noms;
-                    }
-                """.replace("$natures", natures).replace("$textualValue", textualValue));
-            List<BindingSet> results = tupleQuery.evaluate().stream().toList();
-            if (results.isEmpty()) {
-                LOGGER.error("No name/surname found when looking for {} {} in Wikidata: {}", natures, textualValue, results);
-                return Collections.emptyList();
-            } else {
-                return results.stream().map(x -> x.getBinding("item").getValue().stringValue().substring(31)).toList();
-            }
-        });
+        String key = natures + "=" + textualValue;
+        // Looked up outside of the map, see retrieveAuthorInfo
+        List<String> cached = NOM_PRENOM_QIDS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> qids = lookupNames(sparqlConnection, natures, textualValue);
+        List<String> previous = NOM_PRENOM_QIDS.putIfAbsent(key, qids);
+        return previous != null ? previous : qids;
+    }
+
+    private static List<String> lookupNames(RepositoryConnection sparqlConnection, String natures, String textualValue) {
+        TupleQuery tupleQuery = sparqlConnection.prepareTupleQuery(QueryLanguage.SPARQL, """
+                SELECT DISTINCT ?item
+                WHERE
+                {
+                   VALUES ?natures { $natures }
+                   VALUES ?noms { "$textualValue"@mul "$textualValue"@fr "$textualValue"@en "$textualValue"@es "$textualValue"@de "$textualValue"@it "$textualValue"@co }
+                   ?item wdt:P31 ?natures;
+                   wdt:P1705 ?noms;
+                }
+            """.replace("$natures", natures).replace("$textualValue", textualValue));
+        List<BindingSet> results = tupleQuery.evaluate().stream().toList();
+        if (results.isEmpty()) {
+            LOGGER.error("No name/surname found when looking for {} {} in Wikidata: {}", natures, textualValue, results);
+            return Collections.emptyList();
+        } else {
+            return results.stream().map(x -> x.getBinding("item").getValue().stringValue().substring(31)).toList();
+        }
     }
 }
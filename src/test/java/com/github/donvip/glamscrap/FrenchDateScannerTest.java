@@ -0,0 +1,105 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.github.donvip.glamscrap.domain.Notice;
+
+/**
+ * Unit tests for FrenchDateScanner.
+ */
+class FrenchDateScannerTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+        "1905|1905",
+        "[1905 ?]|1905",
+        "vers 1900|1900",
+        "circa 1900|1900",
+        "Août 1944. Vue d'ensemble d'une barricade|1944-08",
+        "janv. 1910|1910-01",
+        "2 mai 1937. Photographie d'un groupe|1937-05-02",
+        "1er mars 1910|1910-03-01",
+        "1914-1918|1914",
+        "entre 1914 et 1918|1914",
+        "mai 1968, 12 juin 1970|1968-05",
+        "Portrait de famille|\"\"",
+    })
+    void testScan(String text, String expected) {
+        assertEquals(expected, FrenchDateScanner.scan(text));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "Années 1950",
+        "1920s",
+        "12 mars",
+        "31 février 1910",
+        "28.10.72 1er Vol d'Airbus",
+        "Baron E. Duquesne, 3-2-1913",
+        "n°20 et 13, 1905",
+    })
+    void testScanAmbiguous(String text) {
+        assertNull(FrenchDateScanner.scan(text));
+    }
+
+    /**
+     * Compares the scanner with HeidelTime on the texts of a corpus, by default {@code dates-corpus.txt}, or the file
+     * given by the {@code glamscrap.dateCorpus} system property (one text per line).
+     */
+    @Test
+    void testSameResultsAsHeidelTime() throws Exception {
+        List<String> mismatches = new ArrayList<>();
+        List<String> corpus = readCorpus();
+        for (String text : corpus) {
+            String date = FrenchDateScanner.scan(text);
+            if (date != null) {
+                String expected = Objects.requireNonNullElse(Parser.extractDateWithHeidelTime(text, new Notice()), "");
+                if (!expected.equals(date)) {
+                    mismatches.add(text + " => " + date + " instead of " + expected);
+                }
+            }
+        }
+        assertEquals(List.of(), mismatches, () -> mismatches.size() + " mismatches out of " + corpus.size() + " texts");
+    }
+
+    private static List<String> readCorpus() throws IOException {
+        String file = System.getProperty("glamscrap.dateCorpus");
+        if (file != null) {
+            return Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = FrenchDateScannerTest.class.getResourceAsStream("/dates-corpus.txt")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+import com.github.donvip.glamscrap.GwtObjectGraph.FieldType;
+import com.github.donvip.glamscrap.GwtObjectGraph.GwtObject;
+
+/**
+ * Unit tests for GwtObjectGraph.
+ */
+class GwtObjectGraphTest {
+
+    private static final Map<String, List<FieldType>> SCHEMAS = Map.of(
+            "Result", List.of(FieldType.OBJECT, FieldType.INT), // medias, total
+            "Media", List.of(FieldType.INT, FieldType.OBJECT, FieldType.STRING), // id, owner, title
+            "User", List.of(FieldType.STRING)); // name
+
+    /**
+     * Generates a page of medias sharing the same owner, serialized once then back-referenced.
+     */
+    private static GwtResponse page(int medias) {
+        List<String> strings = new ArrayList<>(List.of("Result/1", "java.util.ArrayList/4159755760", "Media/2", "User/3", "Jean"));
+        List<Object> values = new ArrayList<>(List.of(1, 2, medias));
+        for (int m = 0; m < medias; m++) {
+            strings.add("Photo " + m);
+            values.addAll(List.of(3, 1000 + m));
+            // Objects are numbered in order of appearance: result, list, first media, then its owner
+            values.addAll(m == 0 ? List.of(4, 5) : List.of(-4));
+            values.add(strings.size());
+        }
+        values.add(medias);
+        return new GwtResponse(7, 0, strings, values);
+    }
+
+    @Test
+    void testRead() {
+        GwtObjectGraph graph = new GwtObjectGraph(page(60), SCHEMAS);
+        GwtObject result = (GwtObject) graph.root();
+        assertEquals("Result", result.getType());
+        assertEquals(60, result.getInt(1));
+        GwtObject medias = (GwtObject) result.getObject(0);
+        assertEquals(60, medias.size());
+        GwtObject last = (GwtObject) medias.get(59);
+        assertEquals(1059, last.getInt(0));
+        assertEquals("Photo 59", last.getString(2));
+        GwtObject owner = (GwtObject) last.getObject(1);
+        assertEquals("Jean", owner.getString(0));
+        assertSame(owner, ((GwtObject) medias.get(0)).getObject(1));
+    }
+
+    @Test
+    void testReadBuiltinTypes() {
+        // HashMap of 2 entries: "a" -> 1, "b" -> null
+        GwtResponse response = new GwtResponse(7, 0,
+                List.of("java.util.HashMap/1797211028", "java.lang.String/2004016611", "a", "java.lang.Integer/3438268394", "b"),
+                List.of(1, 2, 2, 3, 4, 1, 2, 5, 0));
+        GwtObject map = (GwtObject) new GwtObjectGraph(response, Map.of()).root();
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(0));
+        assertEquals(1, map.getValue(0));
+        assertEquals("b", map.get(1));
+        assertNull(map.getValue(1));
+        assertThrows(IllegalStateException.class, () -> map.getIntElement(0));
+    }
+
+    @Test
+    void testUnknownSchema() {
+        GwtObject result = (GwtObject) new GwtObjectGraph(page(2), Map.of()).root();
+        assertEquals("Result", result.getType());
+        assertThrows(IllegalStateException.class, () -> result.getInt(1));
+    }
+
+    @Test
+    void testDecodeLong() {
+        assertEquals(0, GwtObjectGraph.decodeLong("A"));
+        assertEquals(65, GwtObjectGraph.decodeLong("BB"));
+        assertEquals(-1, GwtObjectGraph.decodeLong("P__________"));
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.nashorn.api.scripting.ScriptObjectMirror;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+/**
+ * Unit tests for GwtResponseReader, compared with the evaluation of responses by Nashorn.
+ */
+class GwtResponseReaderTest {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final ScriptEngine NASHORN = new ScriptEngineManager().getEngineByName("nashorn");
+
+    @Test
+    void testRead() {
+        GwtResponse r = Gwt.decodeResponse("//OK[2,-1,0,1.5,'IAAAAAAA',1,[\"fr\",\"a \\\"b\\\"\\\\c\\x3Cd\\u00E9\"],0,7]");
+        assertEquals(7, r.protocolVersion());
+        assertEquals(0, r.flags());
+        assertEquals(List.of("fr", "a \"b\"\\c<dé"), r.strings());
+        assertEquals(List.of(1, "IAAAAAAA", 1.5, 0, -1, 2), r.values());
+    }
+
+    @Test
+    void testReadNumbers() {
+        GwtResponse r = Gwt.decodeResponse("//OK[3000000000,-0,1.5e2,1e3,2048.0,[],0,7]");
+        assertEquals(List.of(2048.0, 1000, 150.0, -0.0, 3.0E9), r.values());
+    }
+
+    @Test
+    void testReadConcat() {
+        GwtResponse r = Gwt.decodeResponse("//OK[3,2].concat([1,[\"x\"],0,7])");
+        assertEquals(List.of("x"), r.strings());
+        assertEquals(List.of(1, 2, 3), r.values());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "//EX[1,[\"x\"],0,7]",
+        "//OK[1,[\"x\"],0,7",
+        "//OK[1,[\"x],0,7]",
+        "//OK[1,[\"x\"],0,7]x",
+        "//OK[a,[\"x\"],0,7]",
+    })
+    void testReadInvalid(String response) {
+        assertThrows(IllegalArgumentException.class, () -> Gwt.decodeResponse(response));
+    }
+
+    @Test
+    void testSameResultsAsNashorn() throws Exception {
+        for (String page : readPages()) {
+            assertEquals(decodeWithNashorn(page), Gwt.decodeResponse(page));
+        }
+    }
+
+    /**
+     * Compares the time needed to decode basket pages with Nashorn and with the reader. Pages recorded from Keepeek
+     * can be given by the {@code glamscrap.gwtPages} system property (a directory of responses, one per file), the
+     * fixture page {@code keepeek/basket-page.txt} and a generated page of 60 medias are used otherwise. Not part of
+     * the unit tests, to be run manually.
+     */
+    @Test
+    @Disabled("Benchmark")
+    void testBenchmark() throws Exception {
+        List<String> pages = readPages();
+        int iterations = Integer.getInteger("glamscrap.gwtIterations", 20);
+        long nashorn = 0;
+        long reader = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            for (String page : pages) {
+                decodeWithNashorn(page);
+            }
+            nashorn += System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String page : pages) {
+                Gwt.decodeResponse(page);
+            }
+            reader += System.nanoTime() - start;
+        }
+        LOGGER.info("{} pages x {}, Nashorn {} ms/page, reader {} ms/page", pages.size(), iterations,
+                String.format("%.3f", nashorn / 1e6 / iterations / pages.size()),
+                String.format("%.3f", reader / 1e6 / iterations / pages.size()));
+    }
+
+    /**
+     * Previous decoding of responses, by evaluation of the payload as JavaScript.
+     */
+    private static GwtResponse decodeWithNashorn(String response) throws ScriptException {
+        ScriptObjectMirror res = (ScriptObjectMirror) NASHORN.eval(response.substring(4));
+        List<Object> list = new ArrayList<>(res.values());
+        Collections.reverse(list);
+        return new GwtResponse(
+                (Integer) list.get(0),
+                (Integer) list.get(1),
+                ((ScriptObjectMirror) list.get(2)).values().stream().map(x -> (String) x).toList(),
+                list.subList(3, list.size()));
+    }
+
+    private static List<String> readPages() throws IOException {
+        String dir = System.getProperty("glamscrap.gwtPages");
+        if (dir != null) {
+            try (Stream<Path> files = Files.list(Paths.get(dir))) {
+                List<String> pages = new ArrayList<>();
+                for (Path file : files.sorted().toList()) {
+                    pages.add(Files.readString(file, StandardCharsets.UTF_8));
+                }
+                return pages;
+            }
+        }
+        try (InputStream in = GwtResponseReaderTest.class.getResourceAsStream("/keepeek/basket-page.txt")) {
+            return List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8), generatePage(60));
+        }
+    }
+
+    /**
+     * Generates a response shaped like a basket page: for each media, a type, an identifier, a title with escaped
+     * characters, dimensions and a back-reference to the shared strings.
+     */
+    private static String generatePage(int medias) {
+        List<String> strings = new ArrayList<>(List.of(
+                "java.util.ArrayList/4159755760",
+                "com.keepeek.kpk360.shared.transport.MediaLightTransport/1212826937",
+                "image/jpeg"));
+        StringBuilder values = new StringBuilder();
+        for (int m = 0; m < medias; m++) {
+            strings.add("Vue de la place du Capitole \\\"n°" + m + "\\\" \\u00E9t\\u00E9 19" + (10 + m % 80));
+            values.append(strings.size()).append(',').append(1000 + m).append(',').append(3).append(',')
+                    .append(4000.5 + m).append(',').append(-m).append(",'IAAA").append(m % 10).append("AAA',2,");
+        }
+        return "//OK[" + values + medias + ",1,[\"" + String.join("\",\"", strings) + "\"],0,7]";
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.FSIterator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.unihd.dbs.heideltime.standalone.Config;
+import de.unihd.dbs.heideltime.standalone.DocumentType;
+import de.unihd.dbs.heideltime.standalone.HeidelTimeStandalone;
+import de.unihd.dbs.heideltime.standalone.OutputType;
+import de.unihd.dbs.heideltime.standalone.components.ResultFormatter;
+import de.unihd.dbs.uima.annotator.heideltime.resources.Language;
+import de.unihd.dbs.uima.types.heideltime.Timex3;
+
+/**
+ * Unit tests for TreeTaggerServiceHeidelTime, run where TreeTagger and its French model are installed.
+ */
+class TreeTaggerServiceHeidelTimeTest {
+
+    /** Values of the time expressions of a document */
+    private static final ResultFormatter TIMEX_VALUES = jcas -> {
+        List<String> values = new ArrayList<>();
+        FSIterator<?> it = jcas.getAnnotationIndex(Timex3.type).iterator();
+        while (it.hasNext()) {
+            values.add(((Timex3) it.next()).getTimexValue());
+        }
+        return String.join(" ", values);
+    };
+
+    @BeforeAll
+    static void checkTreeTagger() {
+        if (!Config.isInitialized()) {
+            // HeidelTime exits if its configuration is missing
+            assumeTrue(Files.isRegularFile(Paths.get(Parser.HEIDELTIME_CONFIG)), "No HeidelTime configuration");
+            HeidelTimeStandalone.readConfigFile(Parser.HEIDELTIME_CONFIG);
+        }
+        Path home = Paths.get(Config.get(Config.TREETAGGERHOME));
+        assumeTrue(Files.isRegularFile(home.resolve("lib").resolve("french.par")), "No French TreeTagger model");
+        assumeTrue(Files.isExecutable(home.resolve("bin").resolve("tree-tagger-flush")), "No TreeTagger flushing binary");
+    }
+
+    @Test
+    void testExtractDate() throws Exception {
+        HeidelTimeStandalone engine = new TreeTaggerServiceHeidelTime(Language.FRENCH, DocumentType.NARRATIVES,
+                Parser.HEIDELTIME_CONFIG, "french.par");
+        assertEquals("1937-05-02", engine.process("2 mai 1937. Photographie d'un groupe de six personnes", TIMEX_VALUES));
+        // The service is reused by the next documents
+        assertEquals("1972-10-28", engine.process("Tour de Contrôle (Blagnac). 28 octobre 1972. Vue d'ensemble.", TIMEX_VALUES));
+    }
+
+    @Test
+    void testSameResultsAsHeidelTime() throws Exception {
+        HeidelTimeStandalone engine = new TreeTaggerServiceHeidelTime(Language.FRENCH, DocumentType.NARRATIVES,
+                Parser.HEIDELTIME_CONFIG, "french.par");
+        HeidelTimeStandalone stock = new HeidelTimeStandalone(Language.FRENCH, DocumentType.NARRATIVES, OutputType.XMI,
+                Parser.HEIDELTIME_CONFIG);
+        for (String text : List.of(
+                "1987. Laissez-passer voiture presse délivré à M. André Cros pour la saison 1987 - 1988 du Stade toulousain",
+                "Rue du Midi. Années 1950. Vue perspective descendante de la rue du Midi au niveau des n°20 et 13.",
+                "Inauguration du pont. Juin 1960. Le maire coupe le ruban ! Foule sur les berges.")) {
+            assertEquals(stock.process(text, TIMEX_VALUES), engine.process(text, TIMEX_VALUES), text);
+        }
+    }
+}
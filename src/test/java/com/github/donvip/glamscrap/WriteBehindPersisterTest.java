@@ -0,0 +1,118 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.donvip.glamscrap.CrawlJournal.Phase;
+
+import com.github.donvip.glamscrap.domain.Notice;
+
+/**
+ * Unit tests for WriteBehindPersister, on an in-memory database.
+ */
+class WriteBehindPersisterTest {
+
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        registry = new StandardServiceRegistryBuilder()
+                .configure()
+                .applySetting("hibernate.connection.url", "jdbc:hsqldb:mem:persister")
+                .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                .build();
+        sessionFactory = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        // Stored by another session: a second insert in the persister fails at commit time
+        sessionFactory.inTransaction(s -> s.persist(new Notice("duplicate")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void testFailedCommit() {
+        AtomicInteger commits = new AtomicInteger();
+        AtomicInteger rollbacks = new AtomicInteger();
+        try (Session s = sessionFactory.openSession();
+                WriteBehindPersister p = new WriteBehindPersister(s, 2, Duration.ofHours(1))) {
+            p.setCommitListener(commits::incrementAndGet);
+            p.setRollbackListener(rollbacks::incrementAndGet);
+            Notice rolledBack = new Notice("rolled-back");
+            p.write(x -> x.persist(rolledBack));
+            assertThrows(HibernateException.class, () -> p.write(x -> x.persist(new Notice("duplicate"))));
+            assertEquals(0, commits.get());
+            assertEquals(1, rollbacks.get());
+            // Entities of the rolled back batch are not attached to the session anymore
+            assertFalse(p.read(x -> x.contains(rolledBack)));
+
+            p.writeNow(x -> x.persist(new Notice("committed")));
+            assertEquals(1, commits.get());
+        }
+        try (Session s = sessionFactory.openSession()) {
+            assertNotNull(s.get(Notice.class, "committed"));
+            assertNull(s.get(Notice.class, "rolled-back"));
+        }
+    }
+
+    @Test
+    void testFailedCommitNotJournaled(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("crawl.journal");
+        try (CrawlJournal j = new CrawlJournal(file);
+                Session s = sessionFactory.openSession();
+                WriteBehindPersister p = new WriteBehindPersister(s, 2, Duration.ofHours(1))) {
+            p.setCommitListener(() -> j.flush("F"));
+            p.setRollbackListener(() -> j.discard("F"));
+            p.write(x -> x.persist(new Notice("rolled-back")));
+            j.processed("F", Phase.BASE_SEARCH, 1);
+            assertThrows(HibernateException.class, () -> p.write(x -> x.persist(new Notice("duplicate"))));
+            j.processed("F", Phase.BASE_SEARCH, 2);
+            p.writeNow(x -> x.persist(new Notice("committed")));
+            assertFalse(j.isProcessed("F", Phase.BASE_SEARCH, 1));
+            assertTrue(j.isProcessed("F", Phase.BASE_SEARCH, 2));
+        }
+        try (CrawlJournal j = new CrawlJournal(file)) {
+            assertFalse(j.isProcessed("F", Phase.BASE_SEARCH, 1));
+            assertTrue(j.isProcessed("F", Phase.BASE_SEARCH, 2));
+        }
+    }
+}
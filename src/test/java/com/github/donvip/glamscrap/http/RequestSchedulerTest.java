@@ -0,0 +1,60 @@
+/**
+ * This file is part of GlamScrap.
+ *
+ *  GlamScrap is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  GlamScrap is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with GlamScrap. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.donvip.glamscrap.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RequestSchedulerTest {
+
+    private static final URI HOST = URI.create("https://example.org/");
+
+    private final RequestScheduler scheduler = new RequestScheduler(1, 0.5, 10, 0.5, 1);
+
+    private void respond(int times, long latencyMillis) {
+        for (int i = 0; i < times; i++) {
+            scheduler.onResponse(HOST, 200, TimeUnit.MILLISECONDS.toNanos(latencyMillis), null);
+        }
+    }
+
+    @Test
+    void testFastOutlierIsForgotten() {
+        respond(1, 1);
+        respond(200, 50);
+        assertEquals(10, scheduler.getRate(HOST));
+    }
+
+    @Test
+    void testSustainedLatencyIncrease() {
+        respond(60, 10);
+        assertEquals(10, scheduler.getRate(HOST));
+        respond(10, 100);
+        assertTrue(scheduler.getRate(HOST) < 10);
+    }
+
+    @Test
+    void testSingleSlowResponse() {
+        respond(60, 10);
+        respond(1, 1000);
+        assertEquals(10, scheduler.getRate(HOST));
+    }
+}
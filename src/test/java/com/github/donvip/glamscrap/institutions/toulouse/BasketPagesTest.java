@@ -0,0 +1,65 @@
+package com.github.donvip.glamscrap.institutions.toulouse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+class BasketPagesTest {
+
+    private static final int PAGE_SIZE = 60;
+
+    private int medias = 150;
+    private final Set<Integer> fetched = new ConcurrentSkipListSet<>();
+
+    /** Page of a basket of {@link #medias} medias, starting at the given index */
+    private GwtResponse page(int index) {
+        fetched.add(index);
+        int size = Math.max(0, Math.min(PAGE_SIZE, medias - index));
+        return new GwtResponse(7, 0, List.of(ToulousePhotosParser.MEDIAS_LIST_RESULT + "/1", ToulousePhotosParser.ARRAY_LIST),
+                List.of(1, 2, size));
+    }
+
+    private List<Integer> read(Integer total) {
+        try (ExecutorService executor = Executors.newFixedThreadPool(2);
+                BasketPages pages = new BasketPages(page(0), total, PAGE_SIZE, this::page, executor)) {
+            return pages.stream().map(ToulousePhotosParser::countMedias).toList();
+        }
+    }
+
+    @Test
+    void testExactTotal() {
+        assertEquals(List.of(60, 60, 30), read(medias));
+        assertEquals(Set.of(0, 60, 120), fetched);
+    }
+
+    @Test
+    void testTotalTooSmall() {
+        assertEquals(List.of(60, 60, 30), read(60));
+        assertEquals(Set.of(0, 60, 120), fetched);
+    }
+
+    @Test
+    void testTotalTooLarge() {
+        assertEquals(List.of(60, 60, 30), read(10 * medias));
+    }
+
+    @Test
+    void testNoTotal() {
+        assertEquals(List.of(60, 60, 30), read(null));
+        assertEquals(Set.of(0, 60, 120), fetched);
+    }
+
+    @Test
+    void testFullLastPage() {
+        medias = 120;
+        assertEquals(List.of(60, 60, 0), read(null));
+    }
+}
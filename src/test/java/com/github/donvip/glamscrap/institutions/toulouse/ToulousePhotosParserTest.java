@@ -0,0 +1,68 @@
+package com.github.donvip.glamscrap.institutions.toulouse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.donvip.glamscrap.Gwt;
+import com.github.donvip.glamscrap.Gwt.GwtResponse;
+
+class ToulousePhotosParserTest {
+
+    private static final List<String> STRINGS = List.of(ToulousePhotosParser.MEDIAS_LIST_RESULT + "/1", ToulousePhotosParser.ARRAY_LIST, "Media/2");
+
+    private static GwtResponse page(List<Object> values) {
+        return new GwtResponse(7, 0, STRINGS, values);
+    }
+
+    @Test
+    void testParseTotal() {
+        GwtResponse page = page(List.of(1, 2, 2, 3, 10, 3, 11, 125));
+        assertEquals(2, ToulousePhotosParser.countMedias(page));
+        assertEquals(125, ToulousePhotosParser.parseTotal(page, 2, 1000));
+        // A page which is not full is the last one
+        assertNull(ToulousePhotosParser.parseTotal(page, 60, 1000));
+        assertEquals(2, ToulousePhotosParser.parseTotal(page(List.of(1, 2, 2, 3, 10, 3, 11, 2)), 60, 1000));
+        assertNull(ToulousePhotosParser.parseTotal(page, 2, 100));
+        assertNull(ToulousePhotosParser.parseTotal(page(List.of(1, 2, 2, 3, 10, 3, 11, 1)), 2, 1000));
+    }
+
+    /**
+     * Reads the fixture {@code keepeek/basket-page.txt}: a last page of three medias, built by hand in the wire format
+     * of GWT-RPC with the layout expected by the parser, until a page recorded from Keepeek replaces it.
+     */
+    @Test
+    void testFixturePage() throws IOException {
+        GwtResponse page;
+        try (InputStream in = ToulousePhotosParserTest.class.getResourceAsStream("/keepeek/basket-page.txt")) {
+            page = Gwt.decodeResponse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(3, ToulousePhotosParser.countMedias(page));
+        assertEquals(3, ToulousePhotosParser.parseTotal(page, 60, 1000));
+    }
+
+    @Test
+    void testUnexpectedPage() {
+        // Result without list of medias
+        assertThrows(IllegalStateException.class, () -> ToulousePhotosParser.parseTotal(page(List.of(1, 3, 10)), 2, 1000));
+        // Other result
+        GwtResponse other = new GwtResponse(7, 0, List.of("Result/1", ToulousePhotosParser.ARRAY_LIST), List.of(1, 2, 0, 0));
+        assertThrows(IllegalStateException.class, () -> ToulousePhotosParser.countMedias(other));
+    }
+
+    @Test
+    void testParseFonds() {
+        GwtResponse basket = page(List.of());
+        assertEquals(3, ToulousePhotosParser.parseFonds(basket, 3, Stream.of(
+                page(List.of(1, 2, 2, 3, 10, 3, 11, 3)),
+                page(List.of(1, 2, 1, 3, 12, 3))), "bBxZc08Cb").getExpectedNotices());
+    }
+}